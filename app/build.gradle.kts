@@ -32,6 +32,10 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    androidResources {
+        // Keep ONNX models uncompressed so they can be memory-mapped from the APK
+        noCompress += "onnx"
+    }
 }
 
 dependencies {
@@ -0,0 +1,865 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+
+import static org.junit.Assert.*;
+
+/**
+ * On-device benchmarks for GenerativeModelHelper. Results are written to logcat (tag InferenceBenchmark).
+ */
+@RunWith(AndroidJUnit4.class)
+public class InferenceBenchmarkTest {
+    private static final String TAG = "InferenceBenchmark";
+    private static final int ITERATIONS = 50;
+    private static final String SAMPLE_SMS =
+            "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI. Avl bal Rs.10,234.50";
+    /** A mixed inbox: several bank templates with varying fields, plus OTPs, promos and chats. */
+    private static final List<String> MIXED_INBOX = Arrays.asList(
+            "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI. Avl bal Rs.10,234.50",
+            "Rs.89.00 debited from A/c XX1234 on 13-03-24 to SWIGGY via UPI. Avl bal Rs.10,145.50",
+            "Rs.2,000.00 debited from A/c XX9876 on 14-03-24 to RAHUL KUMAR via UPI. Avl bal Rs.8,145.50",
+            "INR 15,000.00 credited to A/c XX1234 on 01-04-24 by NEFT from ACME CORP. Ref 998877",
+            "INR 2,300.00 credited to A/c XX4321 on 03-05-24 by NEFT from JOHN DOE. Ref 445566",
+            "You have spent Rs 349.00 on your HDFC Bank Credit Card ending 4455 at NETFLIX on 2024-03-10",
+            "You have spent Rs 1,999.00 on your HDFC Bank Credit Card ending 4455 at FLIPKART on 2024-03-12",
+            "Sent Rs.500.00 from Kotak Bank AC X5566 to friend@okaxis on 10-03-24. UPI Ref 123456789012",
+            "Sent Rs.75.00 from Kotak Bank AC X5566 to chai.wala@ybl on 11-03-24. UPI Ref 223456789012",
+            "Rs 2000 withdrawn at ATM SBI MG ROAD from A/c XX4321",
+            "Received INR 3,000 in your a/c XX1111 from RAHUL via IMPS",
+            "123456 is your OTP for login. Valid for 10 minutes. Do not share it with anyone.",
+            "Your verification code is 889911",
+            "Mega SALE! Flat 50% discount on shoes. Shop now at example.com",
+            "Recharge now with Rs 299 and get 2GB/day extra. Offer valid till Sunday",
+            "Your order #4411 has been shipped and will arrive tomorrow",
+            "Hey, are we still on for dinner tonight?",
+            "Meeting moved to 4 pm, see you there");
+
+    private Context context;
+    private GenerativeModelHelper helper;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new GenerativeModelHelper(context, modelOnly().build());
+        awaitModelReady(helper);
+    }
+
+    /**
+     * Config with result cache, template cache, prefilter and rule cascade off, so every request
+     * reaches the model even though the benchmarks repeat the same messages.
+     */
+    private static InferenceConfig.Builder modelOnly() {
+        return new InferenceConfig.Builder()
+                .setPrefilterEnabled(false)
+                .setRuleCascadeEnabled(false)
+                .setResultCacheSize(0)
+                .setTemplateCacheSize(0);
+    }
+
+    @After
+    public void tearDown() {
+        helper.shutdown();
+    }
+
+    /**
+     * Compares the main-thread cost of one analysis. Before: the old synchronous path, featurizing
+     * into a heap array and calling session.run on the main thread. After: only the dispatch to
+     * the inference executor runs there.
+     */
+    @Test
+    public void mainThreadTimePerAnalysis() throws Exception {
+        OrtEnvironment env = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = InferenceConfig.defaults().createSessionOptions(false);
+             OrtSession session = env.createSession(readAsset(GenerativeModelHelper.DEFAULT_MODEL_ASSET), options)) {
+            String inputName = session.getInputNames().iterator().next();
+            long[] shape = ((TensorInfo) session.getInputInfo().get(inputName).getInfo()).getShape();
+            int inputSize = shape[1] > 0 ? (int) shape[1] : SmsFeaturizer.encodedLength(SAMPLE_SMS);
+
+            long syncNanos = 0;
+            long dispatchNanos = 0;
+            OrtException[] failure = new OrtException[1];
+            for (int i = 0; i < ITERATIONS; i++) {
+                long[] sync = new long[1];
+                InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+                    long start = SystemClock.elapsedRealtimeNanos();
+                    float[] features = new float[inputSize];
+                    SmsFeaturizer.encode(SAMPLE_SMS, FloatBuffer.wrap(features), inputSize);
+                    try (OnnxTensor input = OnnxTensor.createTensor(env, FloatBuffer.wrap(features),
+                            new long[]{1, inputSize});
+                         OrtSession.Result result = session.run(Collections.singletonMap(inputName, input))) {
+                        result.get(0).getValue();
+                    } catch (OrtException e) {
+                        failure[0] = e;
+                    }
+                    sync[0] = SystemClock.elapsedRealtimeNanos() - start;
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                syncNanos += sync[0];
+
+                CountDownLatch done = new CountDownLatch(1);
+                long[] dispatch = new long[1];
+                InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+                    long start = SystemClock.elapsedRealtimeNanos();
+                    helper.generateContent(SAMPLE_SMS, new GenerativeModelHelper.ContentGenerationCallback() {
+                        @Override
+                        public void onSuccess(String response) {
+                            done.countDown();
+                        }
+
+                        @Override
+                        public void onFailure(String error) {
+                            done.countDown();
+                        }
+                    });
+                    dispatch[0] = SystemClock.elapsedRealtimeNanos() - start;
+                });
+                assertTrue(done.await(10, TimeUnit.SECONDS));
+                dispatchNanos += dispatch[0];
+            }
+
+            Log.i(TAG, String.format("main-thread per analysis: before=%.3f ms (synchronous run), after=%.3f ms",
+                    syncNanos / 1e6 / ITERATIONS, dispatchNanos / 1e6 / ITERATIONS));
+        }
+    }
+
+    /**
+     * Per-message cost of classifying an inbox one call at a time vs one [N, C] batch per chunk.
+     * Every message has a rule-decidable template, so this relies on the shared helper having
+     * the cascade and template cache off. The shipped sms_model.onnx has a fixed [1, 191] input,
+     * so the batch falls back to one session.run per message and only saves per-call dispatch;
+     * the speedup of real [N, C] batches needs a model exported with a dynamic batch axis.
+     */
+    @Test
+    public void batchVersusSingleThroughput() throws InterruptedException {
+        int messages = 1000;
+        List<String> inbox = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            inbox.add(SAMPLE_SMS.replace("1,250.00", (i + 1) + ".00"));
+        }
+
+        CountDownLatch singleDone = new CountDownLatch(messages);
+        long singleStart = SystemClock.elapsedRealtimeNanos();
+        for (String sms : inbox) {
+            submitUntilAccepted(sms, singleDone);
+        }
+        assertTrue(singleDone.await(120, TimeUnit.SECONDS));
+        long singleNanos = SystemClock.elapsedRealtimeNanos() - singleStart;
+
+        CountDownLatch batchDone = new CountDownLatch(1);
+        @SuppressWarnings("unchecked")
+        List<String>[] batchResult = new List[1];
+        long batchStart = SystemClock.elapsedRealtimeNanos();
+        helper.generateContentBatch(inbox, new GenerativeModelHelper.BatchGenerationCallback() {
+            @Override
+            public void onSuccess(List<String> responses) {
+                batchResult[0] = responses;
+                batchDone.countDown();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                batchDone.countDown();
+            }
+        });
+        assertTrue(batchDone.await(120, TimeUnit.SECONDS));
+        long batchNanos = SystemClock.elapsedRealtimeNanos() - batchStart;
+
+        assertNotNull(batchResult[0]);
+        assertEquals(messages, batchResult[0].size());
+        // Both runs must have gone through the model, not the rules or a cache
+        assertEquals(0, helper.getRuleDecisionCount());
+        assertEquals(0, helper.getTemplateCacheStats().getHits());
+        Log.i(TAG, String.format("per message: single=%.3f ms, batched=%.3f ms (dynamic batch: %b)",
+                singleNanos / 1e6 / messages, batchNanos / 1e6 / messages, helper.supportsBatching()));
+    }
+
+    /**
+     * p50/p99 latency and throughput for three concurrent callers, with and without micro-batching.
+     * The helper ignores micro-batching on a model with a fixed batch axis, like the shipped
+     * [1, 191] sms_model.onnx, so all rows then match the baseline.
+     */
+    @Test
+    public void microBatchingLatencyVersusThroughput() throws InterruptedException {
+        Log.i(TAG, "micro-batching: dynamic batch=" + helper.supportsBatching());
+        reportConcurrentLoad("no micro-batching");
+        for (long windowMillis : new long[]{1, 2, 5}) {
+            helper.enableMicroBatching(windowMillis, 16);
+            reportConcurrentLoad("window=" + windowMillis + "ms, max=16");
+        }
+        helper.disableMicroBatching();
+    }
+
+    private void reportConcurrentLoad(String label) throws InterruptedException {
+        int callers = 3;
+        int perCaller = 200;
+        long[] latencies = new long[callers * perCaller];
+        CountDownLatch done = new CountDownLatch(latencies.length);
+        Thread[] threads = new Thread[callers];
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int c = 0; c < callers; c++) {
+            int caller = c;
+            threads[c] = new Thread(() -> {
+                for (int i = 0; i < perCaller; i++) {
+                    int slot = caller * perCaller + i;
+                    long sent = SystemClock.elapsedRealtimeNanos();
+                    GenerativeModelHelper.ContentGenerationCallback callback =
+                            new GenerativeModelHelper.ContentGenerationCallback() {
+                                @Override
+                                public void onSuccess(String response) {
+                                    latencies[slot] = SystemClock.elapsedRealtimeNanos() - sent;
+                                    done.countDown();
+                                }
+
+                                @Override
+                                public void onFailure(String error) {
+                                    latencies[slot] = SystemClock.elapsedRealtimeNanos() - sent;
+                                    done.countDown();
+                                }
+                            };
+                    helper.generateContent(SAMPLE_SMS, callback);
+                    SystemClock.sleep(1);
+                }
+            });
+            threads[c].start();
+        }
+        assertTrue(done.await(120, TimeUnit.SECONDS));
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+
+        Arrays.sort(latencies);
+        Log.i(TAG, String.format("%s: p50=%.2f ms, p99=%.2f ms, throughput=%.1f msg/s", label,
+                latencies[latencies.length / 2] / 1e6,
+                latencies[(int) (latencies.length * 0.99)] / 1e6,
+                latencies.length / (elapsed / 1e9)));
+    }
+
+    /**
+     * Session creation from the memory-mapped asset vs the old byte[] copy, with the same
+     * session options. Only reading the model and env.createSession are timed; the helper's
+     * hashing, calibration and warm-up are left out. Mapped load runs first so the heap copy
+     * cannot inflate its numbers.
+     */
+    @Test
+    public void modelLoadTimeAndMemory() throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        OrtEnvironment env = OrtEnvironment.getEnvironment();
+        InferenceConfig config = InferenceConfig.defaults();
+        String asset = GenerativeModelHelper.DEFAULT_MODEL_ASSET;
+
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long rssBefore = readProcStatusKb("VmRSS");
+        long mappedNanos;
+        long mappedHeap;
+        long mappedRss;
+        try (OrtSession.SessionOptions options = config.createSessionOptions(false)) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            MappedByteBuffer modelBuffer;
+            try (AssetFileDescriptor afd = context.getAssets().openFd(asset);
+                 FileInputStream in = afd.createInputStream()) {
+                modelBuffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        afd.getStartOffset(), afd.getDeclaredLength());
+            }
+            try (OrtSession session = env.createSession(modelBuffer, options)) {
+                mappedNanos = SystemClock.elapsedRealtimeNanos() - start;
+                mappedHeap = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+                mappedRss = readProcStatusKb("VmRSS") - rssBefore;
+            }
+        }
+
+        System.gc();
+        heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        rssBefore = readProcStatusKb("VmRSS");
+        try (OrtSession.SessionOptions options = config.createSessionOptions(false)) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            byte[] modelBytes = readAsset(asset);
+            try (OrtSession session = env.createSession(modelBytes, options)) {
+                long copiedNanos = SystemClock.elapsedRealtimeNanos() - start;
+                long copiedHeap = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+                long copiedRss = readProcStatusKb("VmRSS") - rssBefore;
+                Log.i(TAG, String.format("model load: mapped=%.2f ms (heap +%d KB, rss +%d KB), "
+                                + "byte[]=%.2f ms (heap +%d KB, rss +%d KB), peak rss=%d KB",
+                        mappedNanos / 1e6, mappedHeap / 1024, mappedRss,
+                        copiedNanos / 1e6, copiedHeap / 1024, copiedRss, readProcStatusKb("VmHWM")));
+            }
+        }
+    }
+
+    /**
+     * Startup with graph optimization on every launch vs loading the persisted optimized model.
+     */
+    @Test
+    public void optimizedModelCacheStartup() throws InterruptedException {
+        int launches = 5;
+        long uncachedMillis = 0;
+        long cachedMillis = 0;
+        InferenceConfig uncached = new InferenceConfig.Builder().setCacheOptimizedModel(false).build();
+        InferenceConfig cached = new InferenceConfig.Builder().setCacheOptimizedModel(true).build();
+
+        // Populate the cache once
+        GenerativeModelHelper primer = new GenerativeModelHelper(context, cached);
+        awaitModelReady(primer);
+        primer.shutdown();
+
+        for (int i = 0; i < launches; i++) {
+            GenerativeModelHelper h = new GenerativeModelHelper(context, uncached);
+            awaitModelReady(h);
+            uncachedMillis += h.getModelLoadMillis();
+            h.shutdown();
+
+            h = new GenerativeModelHelper(context, cached);
+            awaitModelReady(h);
+            cachedMillis += h.getModelLoadMillis();
+            h.shutdown();
+        }
+
+        Log.i(TAG, String.format("model load: optimize every launch=%.1f ms, cached optimized model=%.1f ms",
+                uncachedMillis / (double) launches, cachedMillis / (double) launches));
+    }
+
+    /**
+     * Per-message latency with keyword rules in front of the model vs the model alone.
+     * Caches and the prefilter are off so every message reaches a classifier.
+     */
+    @Test
+    public void ruleCascadeVersusModelOnly() throws InterruptedException {
+        List<String> inbox = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            inbox.add(SAMPLE_SMS.replace("1,250.00", (i + 1) + ".00"));
+            inbox.add("Rs " + (i + 1) + " debited from A/c XX1 and credited to A/c XX2");
+        }
+        for (boolean cascade : new boolean[]{false, true}) {
+            InferenceConfig config = modelOnly()
+                    .setRuleCascadeEnabled(cascade)
+                    .build();
+            GenerativeModelHelper h = new GenerativeModelHelper(context, config);
+            awaitModelReady(h);
+            CountDownLatch done = new CountDownLatch(1);
+            long start = SystemClock.elapsedRealtimeNanos();
+            h.analyzeSmsBatch(inbox, new GenerativeModelHelper.BatchTransactionCallback() {
+                @Override
+                public void onSuccess(List<ParsedTransaction> results) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    done.countDown();
+                }
+            });
+            assertTrue(done.await(120, TimeUnit.SECONDS));
+            long nanos = SystemClock.elapsedRealtimeNanos() - start;
+            Log.i(TAG, String.format("%s: %.3f ms/msg, decided by rules=%d/%d",
+                    cascade ? "rule cascade" : "model only", nanos / 1e6 / inbox.size(),
+                    h.getRuleDecisionCount(), inbox.size()));
+            h.shutdown();
+        }
+    }
+
+    /**
+     * Load time, per-message latency and accuracy of each packaged model variant on the same
+     * labeled corpus. Caches, prefilter and rules are off so every message reaches the model.
+     */
+    @Test
+    public void modelVariantsCompared() throws InterruptedException {
+        List<String> texts = new ArrayList<>();
+        List<TransactionType> labels = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            texts.add(SAMPLE_SMS.replace("1,250.00", (i + 1) + ".00"));
+            labels.add(TransactionType.DEBIT);
+            texts.add("Rs." + (i + 1) + ".00 credited to your A/c XX5678 by NEFT from ACME CORP");
+            labels.add(TransactionType.CREDIT);
+            texts.add((100000 + i) + " is your OTP for login. Do not share it with anyone.");
+            labels.add(TransactionType.NONE);
+        }
+        InferenceConfig.Builder builder = modelOnly()
+                .setCacheOptimizedModel(false);
+
+        List<TransactionType> baseline = null;
+        double baselineAccuracy = 0;
+        for (ModelVariant variant : ModelVariant.values()) {
+            if (!ModelVariant.isPackaged(context, variant)) {
+                Log.i(TAG, variant + ": " + variant.getAssetName() + " not packaged, skipped");
+                continue;
+            }
+            GenerativeModelHelper h = new GenerativeModelHelper(context, variant.getAssetName(),
+                    builder.setModelVariant(variant).build());
+            awaitModelReady(h);
+
+            long[] latencies = new long[texts.size()];
+            List<TransactionType> types = new ArrayList<>(texts.size());
+            for (int i = 0; i < texts.size(); i++) {
+                CountDownLatch done = new CountDownLatch(1);
+                ParsedTransaction[] result = new ParsedTransaction[1];
+                long start = SystemClock.elapsedRealtimeNanos();
+                h.analyzeSms(texts.get(i), new GenerativeModelHelper.TransactionCallback() {
+                    @Override
+                    public void onSuccess(ParsedTransaction parsed) {
+                        result[0] = parsed;
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        done.countDown();
+                    }
+                });
+                assertTrue(done.await(10, TimeUnit.SECONDS));
+                latencies[i] = SystemClock.elapsedRealtimeNanos() - start;
+                types.add(result[0] != null ? result[0].getType() : TransactionType.UNKNOWN);
+            }
+
+            int correct = 0;
+            int agree = 0;
+            for (int i = 0; i < types.size(); i++) {
+                if (types.get(i) == labels.get(i)) {
+                    correct++;
+                }
+                if (baseline != null && types.get(i) == baseline.get(i)) {
+                    agree++;
+                }
+            }
+            double accuracy = correct / (double) types.size();
+            if (baseline == null) {
+                baseline = types;
+                baselineAccuracy = accuracy;
+                agree = types.size();
+            }
+            Arrays.sort(latencies);
+            Log.i(TAG, String.format("%s: load=%d ms, p50=%.3f ms, p99=%.3f ms, accuracy=%.3f "
+                            + "(delta %+.3f, agreement %.3f vs %s)", variant, h.getModelLoadMillis(),
+                    latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) (latencies.length * 0.99)] / 1e6,
+                    accuracy, accuracy - baselineAccuracy, agree / (double) types.size(), ModelVariant.FP32));
+            h.shutdown();
+        }
+    }
+
+    /**
+     * First-request latency right after onModelReady vs steady state, with the warm-up that now
+     * runs during load. Caches are off so every request reaches the model.
+     */
+    @Test
+    public void firstRequestAfterWarmup() throws InterruptedException {
+        InferenceConfig config = modelOnly().build();
+        GenerativeModelHelper h = new GenerativeModelHelper(context, config);
+        awaitModelReady(h);
+
+        long[] latencies = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            CountDownLatch done = new CountDownLatch(1);
+            long start = SystemClock.elapsedRealtimeNanos();
+            h.analyzeSms(SAMPLE_SMS.replace("1,250.00", (i + 1) + ".00"), new GenerativeModelHelper.TransactionCallback() {
+                @Override
+                public void onSuccess(ParsedTransaction result) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    done.countDown();
+                }
+            });
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            latencies[i] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+        long first = latencies[0];
+        Arrays.sort(latencies);
+        Log.i(TAG, String.format("after warm-up (%d ms): first request=%.3f ms, p50=%.3f ms",
+                h.getWarmupMillis(), first / 1e6, latencies[ITERATIONS / 2] / 1e6));
+        h.shutdown();
+    }
+
+    /**
+     * Where analysis time goes, per stage, for single and batched requests. Caches and rules are
+     * off so every message reaches the model.
+     */
+    @Test
+    public void perStageLatencyBreakdown() throws InterruptedException {
+        InferenceConfig config = modelOnly()
+                .setMetricsEnabled(true)
+                .build();
+        GenerativeModelHelper h = new GenerativeModelHelper(context, config);
+        awaitModelReady(h);
+
+        List<String> inbox = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            inbox.add(SAMPLE_SMS.replace("1,250.00", (i + 1) + ".00"));
+        }
+        CountDownLatch singles = new CountDownLatch(ITERATIONS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            h.generateContent(inbox.get(i), new GenerativeModelHelper.ContentGenerationCallback() {
+                @Override
+                public void onSuccess(String response) {
+                    singles.countDown();
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    singles.countDown();
+                }
+            });
+        }
+        assertTrue(singles.await(30, TimeUnit.SECONDS));
+        CountDownLatch batch = new CountDownLatch(1);
+        h.generateContentBatch(inbox, new GenerativeModelHelper.BatchGenerationCallback() {
+            @Override
+            public void onSuccess(List<String> responses) {
+                batch.countDown();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                batch.countDown();
+            }
+        });
+        assertTrue(batch.await(30, TimeUnit.SECONDS));
+
+        InferenceMetrics.Snapshot snapshot = h.getMetricsSnapshot();
+        assertNotNull(snapshot);
+        assertEquals(ITERATIONS + inbox.size(), snapshot.getRequestCount());
+        Log.i(TAG, "per-stage latency:\n" + snapshot);
+        h.shutdown();
+    }
+
+    /**
+     * Analyses submitted right after construction wait for the load and start on the load thread,
+     * without failing or bouncing through the main thread first.
+     */
+    @Test
+    public void analysesQueuedDuringLoad() throws Exception {
+        int requests = 10;
+        long start = SystemClock.elapsedRealtimeNanos();
+        GenerativeModelHelper h = new GenerativeModelHelper(context);
+        long[] readyAt = new long[1];
+        h.whenReady().thenRun(() -> readyAt[0] = SystemClock.elapsedRealtimeNanos());
+        CountDownLatch done = new CountDownLatch(requests);
+        int[] failures = new int[1];
+        for (int i = 0; i < requests; i++) {
+            h.analyzeSms(SAMPLE_SMS.replace("1,250.00", (i + 1) + ".00"), new GenerativeModelHelper.TransactionCallback() {
+                @Override
+                public void onSuccess(ParsedTransaction result) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    failures[0]++;
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        long end = SystemClock.elapsedRealtimeNanos();
+
+        assertEquals(0, failures[0]);
+        Log.i(TAG, String.format("queued during load: ready after %.1f ms, %d results %.2f ms later",
+                (readyAt[0] - start) / 1e6, requests, (end - readyAt[0]) / 1e6));
+        h.shutdown();
+    }
+
+    /**
+     * Share of the mixed inbox a template cache would serve: every message after the first of its
+     * template skips the model. Also the cost of computing a skeleton.
+     */
+    @Test
+    public void templateCacheShareOfMixedInbox() {
+        Set<String> templates = new HashSet<>();
+        int served = 0;
+        for (String sms : MIXED_INBOX) {
+            if (!templates.add(TemplateCanonicalizer.skeleton(sms))) {
+                served++;
+            }
+        }
+
+        int rounds = 2_000;
+        long start = SystemClock.elapsedRealtimeNanos();
+        int length = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (String sms : MIXED_INBOX) {
+                length += TemplateCanonicalizer.skeleton(sms).length();
+            }
+        }
+        long nanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        assertTrue(length > 0);
+        Log.i(TAG, String.format("template cache: served %d/%d (%d%%), %d templates, skeleton=%.0f ns/msg",
+                served, MIXED_INBOX.size(), 100 * served / MIXED_INBOX.size(), templates.size(),
+                nanos / ((double) rounds * MIXED_INBOX.size())));
+    }
+
+    /**
+     * Model runs the prefilter saves on the mixed inbox, and what it costs per message.
+     */
+    @Test
+    public void prefilterSavingsOnMixedInbox() {
+        TransactionPrefilter prefilter = TransactionPrefilter.createDefault();
+        int rounds = 2_000;
+        int rejected = 0;
+        for (int r = 0; r < rounds / 10; r++) {
+            rejected = 0;
+            for (String sms : MIXED_INBOX) {
+                if (!prefilter.mightBeTransaction(sms)) {
+                    rejected++;
+                }
+            }
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int r = 0; r < rounds; r++) {
+            for (String sms : MIXED_INBOX) {
+                prefilter.mightBeTransaction(sms);
+            }
+        }
+        long nanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(TAG, String.format("prefilter: skipped %d/%d model runs (%d%%), %.0f ns/msg",
+                rejected, MIXED_INBOX.size(), 100 * rejected / MIXED_INBOX.size(),
+                nanos / ((double) rounds * MIXED_INBOX.size())));
+    }
+
+    /**
+     * Cost of one LatencyHistogram.record, which every metrics-enabled stage pays per message.
+     */
+    @Test
+    public void histogramRecordCost() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int samples = 2_000_000;
+        for (int i = 0; i < samples / 10; i++) {
+            histogram.record(i);
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < samples; i++) {
+            histogram.record(i * 37L);
+        }
+        long nanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        assertTrue(histogram.snapshot().getCount() > samples);
+        Log.i(TAG, String.format("LatencyHistogram.record: %.1f ns/sample", nanos / (double) samples));
+    }
+
+    /**
+     * Amount extraction over the same mixed inbox: AmountScanner vs the regex extraction it replaced.
+     * Pure CPU work, no model involved.
+     */
+    @Test
+    public void amountScannerVersusRegex() {
+        int rounds = 2_000;
+        // Warm up both paths so neither pays for JIT or class loading in the timed loop
+        long found = countAmounts(rounds / 10, true) + countAmounts(rounds / 10, false);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        found += countAmounts(rounds, false);
+        long regexNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        found += countAmounts(rounds, true);
+        long scannerNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        double messages = (double) rounds * MIXED_INBOX.size();
+        Log.i(TAG, String.format("amount extraction: regex=%.0f ns/msg, scanner=%.0f ns/msg (%d amounts)",
+                regexNanos / messages, scannerNanos / messages, found));
+    }
+
+    /**
+     * WordPiece tokens per second over the mixed inbox, into direct int64 buffers as an ORT input
+     * would use. The shipped model takes per-character floats, so this uses the packaged vocab if
+     * there is one and otherwise a vocab built from the inbox words plus single-character pieces.
+     */
+    @Test
+    public void tokenizerThroughput() throws IOException {
+        WordPieceTokenizer tokenizer;
+        if (isAssetPackaged(WordPieceTokenizer.DEFAULT_VOCAB_ASSET)) {
+            tokenizer = WordPieceTokenizer.fromAsset(context, WordPieceTokenizer.DEFAULT_VOCAB_ASSET);
+        } else {
+            Log.i(TAG, WordPieceTokenizer.DEFAULT_VOCAB_ASSET + " not packaged, using a vocab built from the inbox");
+            tokenizer = new WordPieceTokenizer(inboxVocab());
+        }
+        int maxTokens = 64;
+        LongBuffer ids = ByteBuffer.allocateDirect(maxTokens * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        LongBuffer mask = ByteBuffer.allocateDirect(maxTokens * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        int rounds = 2_000;
+        for (int r = 0; r < rounds / 10; r++) {
+            for (String sms : MIXED_INBOX) {
+                ids.clear();
+                mask.clear();
+                tokenizer.encode(sms, ids, mask, maxTokens);
+            }
+        }
+
+        long tokens = 0;
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int r = 0; r < rounds; r++) {
+            for (String sms : MIXED_INBOX) {
+                ids.clear();
+                mask.clear();
+                tokens += tokenizer.encode(sms, ids, mask, maxTokens);
+            }
+        }
+        double seconds = (SystemClock.elapsedRealtimeNanos() - start) / 1e9;
+
+        assertTrue(tokens > 0);
+        Log.i(TAG, String.format("WordPiece tokenizer: %.2fM tokens/s, %.0f messages/s",
+                tokens / seconds / 1e6, rounds * MIXED_INBOX.size() / seconds));
+    }
+
+    /**
+     * Special tokens, every inbox word, and every character as a leading and a "##" piece.
+     */
+    private static List<String> inboxVocab() {
+        Set<String> vocab = new LinkedHashSet<>(Arrays.asList("[PAD]", "[UNK]", "[CLS]", "[SEP]"));
+        for (String sms : MIXED_INBOX) {
+            for (String word : sms.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty()) {
+                    vocab.add(word);
+                }
+            }
+            for (char c : sms.toLowerCase(Locale.ROOT).toCharArray()) {
+                if (!Character.isWhitespace(c)) {
+                    vocab.add(String.valueOf(c));
+                    vocab.add("##" + c);
+                }
+            }
+        }
+        return new ArrayList<>(vocab);
+    }
+
+    private boolean isAssetPackaged(String name) {
+        try (InputStream ignored = context.getAssets().open(name)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long countAmounts(int rounds, boolean scanner) {
+        long found = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (String sms : MIXED_INBOX) {
+                double amount = scanner ? AmountScanner.scan(sms) : regexAmount(sms);
+                if (!Double.isNaN(amount)) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Whole asset copied onto the heap, as the helper loaded models before memory-mapping.
+     */
+    private byte[] readAsset(String asset) throws IOException {
+        try (InputStream is = context.getAssets().open(asset)) {
+            byte[] bytes = new byte[is.available()];
+            int total = 0;
+            while (total < bytes.length) {
+                int read = is.read(bytes, total, bytes.length - total);
+                if (read == -1) break;
+                total += read;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * The regex extraction AmountScanner replaced, kept as the benchmark baseline.
+     */
+    private static double regexAmount(String sms) {
+        String cleaned = sms.replaceAll(",", "");
+        Matcher matcher = Pattern.compile("(\\d+\\.?\\d{0,2})").matcher(cleaned);
+        return matcher.find() ? Double.parseDouble(matcher.group(1)) : Double.NaN;
+    }
+
+    private static long readProcStatusKb(String field) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(field + ":")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Submits one request, retrying while the bounded inference queue is full.
+     */
+    private void submitUntilAccepted(String sms, CountDownLatch done) throws InterruptedException {
+        boolean[] rejected = new boolean[1];
+        do {
+            rejected[0] = false;
+            helper.generateContent(sms, new GenerativeModelHelper.ContentGenerationCallback() {
+                @Override
+                public void onSuccess(String response) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    if (error.startsWith("Inference queue full")) {
+                        rejected[0] = true;
+                    } else {
+                        done.countDown();
+                    }
+                }
+            });
+            if (rejected[0]) {
+                Thread.sleep(1);
+            }
+        } while (rejected[0]);
+    }
+
+    static void awaitModelReady(GenerativeModelHelper helper) throws InterruptedException {
+        try {
+            helper.whenReady().get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AssertionError("Model did not load in time", e);
+        }
+    }
+}
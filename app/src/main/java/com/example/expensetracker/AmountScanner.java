@@ -0,0 +1,222 @@
+package com.example.expensetracker;
+
+/**
+ * Single-pass, allocation-free amount extraction for transaction SMS.
+ *
+ * The first amount introduced by a currency marker (Rs, Rs., INR, ₹) wins, so a trailing
+ * "Avl bal Rs.10,234.50" is ignored. Without a marker, the first standalone number is used,
+ * skipping masked account numbers (XX1234, **1234), numbers after "A/c", and dates/times
+ * (digits joined by '-', '/' or ':'). Handles Indian lakh grouping (1,00,000.00) and
+ * up to two decimal places, including amounts without integer digits ("Rs. .50").
+ */
+final class AmountScanner {
+    static final long NOT_FOUND = -1;
+    private static final int MAX_INTEGER_DIGITS = 13; // Keeps minor units within a long
+    private static final String[] ACCOUNT_WORDS = {"a/c", "ac", "acct", "no"};
+
+    private AmountScanner() {
+    }
+
+    /**
+     * Amount in major units (e.g. rupees), or NaN if the SMS has no amount.
+     */
+    static double scan(CharSequence sms) {
+        long minor = scanMinorUnits(sms);
+        return minor == NOT_FOUND ? Double.NaN : minor / 100.0;
+    }
+
+    /**
+     * Amount in minor units (e.g. paise), or {@link #NOT_FOUND}.
+     */
+    static long scanMinorUnits(CharSequence sms) {
+        if (sms == null) {
+            return NOT_FOUND;
+        }
+        int length = sms.length();
+        long fallback = NOT_FOUND;
+        int i = 0;
+        while (i < length) {
+            char c = sms.charAt(i);
+
+            int markerEnd = currencyMarkerEnd(sms, i);
+            if (markerEnd > i) {
+                int j = skipMarkerPunctuation(sms, markerEnd);
+                if (j < length && (isDigit(sms.charAt(j)) || isDecimalPoint(sms, j))) {
+                    int end = numberEnd(sms, j);
+                    long minor = parseMinorUnits(sms, j, end);
+                    if (minor != NOT_FOUND) {
+                        return minor;
+                    }
+                    i = end;
+                    continue;
+                }
+                i = markerEnd;
+                continue;
+            }
+
+            if (isDigit(c)) {
+                int end = numberEnd(sms, i);
+                if (fallback == NOT_FOUND && isStandaloneAmount(sms, i, end)) {
+                    fallback = parseMinorUnits(sms, i, end);
+                }
+                // Skip the rest of this token, e.g. the digits of "12-03-24" or "XX1234"
+                i = end;
+                while (i < length && (isDigit(sms.charAt(i)) || isJoiner(sms.charAt(i)))) {
+                    i++;
+                }
+                continue;
+            }
+            i++;
+        }
+        return fallback;
+    }
+
+    /**
+     * End of a currency marker starting at i, or i if there is none. Markers must start a word.
+     */
+    private static int currencyMarkerEnd(CharSequence sms, int i) {
+        char c = sms.charAt(i);
+        if (c == '₹') {
+            return i + 1;
+        }
+        if (i > 0 && Character.isLetter(sms.charAt(i - 1))) {
+            return i;
+        }
+        int length = sms.length();
+        if ((c == 'r' || c == 'R') && i + 1 < length) {
+            char s = sms.charAt(i + 1);
+            if ((s == 's' || s == 'S') && (i + 2 == length || !Character.isLetter(sms.charAt(i + 2)))) {
+                return i + 2;
+            }
+        }
+        if ((c == 'i' || c == 'I') && i + 2 < length) {
+            char n = sms.charAt(i + 1);
+            char r = sms.charAt(i + 2);
+            if ((n == 'n' || n == 'N') && (r == 'r' || r == 'R')
+                    && (i + 3 == length || !Character.isLetter(sms.charAt(i + 3)))) {
+                return i + 3;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Skips the spaces, ':' and abbreviation dots between a currency marker and its amount.
+     * A '.' followed by a digit is a decimal point ("Rs. .50") unless it directly follows the
+     * marker, where it is the abbreviation dot of "Rs.50".
+     */
+    private static int skipMarkerPunctuation(CharSequence sms, int markerEnd) {
+        int length = sms.length();
+        int j = markerEnd;
+        while (j < length) {
+            char c = sms.charAt(j);
+            if (c == ' ' || c == ':' || (c == '.' && (j == markerEnd || !isDecimalPoint(sms, j)))) {
+                j++;
+            } else {
+                break;
+            }
+        }
+        return j;
+    }
+
+    private static boolean isDecimalPoint(CharSequence sms, int i) {
+        return sms.charAt(i) == '.' && i + 1 < sms.length() && isDigit(sms.charAt(i + 1));
+    }
+
+    /**
+     * End index of a number at start: digits, commas between digits, then an optional
+     * '.' with up to two decimal digits.
+     */
+    private static int numberEnd(CharSequence sms, int start) {
+        int length = sms.length();
+        int i = start;
+        while (i < length) {
+            char c = sms.charAt(i);
+            if (isDigit(c)) {
+                i++;
+            } else if (c == ',' && i + 1 < length && isDigit(sms.charAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        if (i + 1 < length && sms.charAt(i) == '.' && isDigit(sms.charAt(i + 1))) {
+            i += 2;
+            if (i < length && isDigit(sms.charAt(i))) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static long parseMinorUnits(CharSequence sms, int start, int end) {
+        long major = 0;
+        int integerDigits = 0;
+        int i = start;
+        for (; i < end; i++) {
+            char c = sms.charAt(i);
+            if (c == ',') {
+                continue;
+            }
+            if (c == '.') {
+                break;
+            }
+            if (++integerDigits > MAX_INTEGER_DIGITS) {
+                return NOT_FOUND;
+            }
+            major = major * 10 + (c - '0');
+        }
+        long minor = 0;
+        int decimals = 0;
+        for (i++; i < end && decimals < 2; i++, decimals++) {
+            minor = minor * 10 + (sms.charAt(i) - '0');
+        }
+        if (decimals == 1) {
+            minor *= 10;
+        }
+        return major * 100 + minor;
+    }
+
+    /**
+     * Whether the number is an amount rather than part of an account number, date or reference.
+     */
+    private static boolean isStandaloneAmount(CharSequence sms, int start, int end) {
+        if (start > 0) {
+            char before = sms.charAt(start - 1);
+            // XX1234, **1234, ref1234, 12-03-24
+            if (Character.isLetter(before) || before == '*' || isJoiner(before)) {
+                return false;
+            }
+        }
+        if (end < sms.length()) {
+            char after = sms.charAt(end);
+            if (Character.isLetterOrDigit(after) || isJoiner(after)) {
+                return false;
+            }
+        }
+        return !precededByAccountWord(sms, start);
+    }
+
+    /**
+     * Whether the previous word is "a/c", "ac", "acct" or "no" (as in "A/c no. 1234").
+     */
+    private static boolean precededByAccountWord(CharSequence sms, int start) {
+        int end = start;
+        while (end > 0 && (sms.charAt(end - 1) == ' ' || sms.charAt(end - 1) == '.' || sms.charAt(end - 1) == ':')) {
+            end--;
+        }
+        int wordStart = end;
+        while (wordStart > 0 && sms.charAt(wordStart - 1) != ' ') {
+            wordStart--;
+        }
+        return SmsWords.matchesAny(sms, wordStart, end, ACCOUNT_WORDS);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isJoiner(char c) {
+        return c == '-' || c == '/' || c == ':';
+    }
+}
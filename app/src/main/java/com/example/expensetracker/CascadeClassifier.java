@@ -0,0 +1,56 @@
+package com.example.expensetracker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import ai.onnxruntime.OrtException;
+
+/**
+ * Trusts a cheap classifier when it is confident and asks an expensive one otherwise,
+ * e.g. keyword rules in front of the ONNX model.
+ */
+final class CascadeClassifier implements SmsClassifier {
+    static final float DEFAULT_TRUST_THRESHOLD = 0.9f;
+
+    private final SmsClassifier first;
+    private final SmsClassifier fallback;
+    private final float trustThreshold;
+    private final AtomicLong decidedFirst = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+
+    /**
+     * @param trustThreshold min confidence of the first classifier for its decision to stand
+     */
+    CascadeClassifier(SmsClassifier first, SmsClassifier fallback, float trustThreshold) {
+        this.first = first;
+        this.fallback = fallback;
+        this.trustThreshold = trustThreshold;
+    }
+
+    @Override
+    public Classification classify(String smsText) throws OrtException {
+        Classification early = classifyFirst(smsText);
+        return early != null ? early : fallback.classify(smsText);
+    }
+
+    /**
+     * The first classifier's decision if it is trusted, or null when the fallback must decide.
+     * Lets batch callers collect the deferred messages and run the fallback on them together.
+     */
+    Classification classifyFirst(String smsText) throws OrtException {
+        Classification classification = first.classify(smsText);
+        if (classification.getConfidence() >= trustThreshold) {
+            decidedFirst.incrementAndGet();
+            return classification;
+        }
+        deferred.incrementAndGet();
+        return null;
+    }
+
+    long getDecidedFirstCount() {
+        return decidedFirst.get();
+    }
+
+    long getDeferredCount() {
+        return deferred.get();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.expensetracker;
+
+/**
+ * Raw decision of an {@link SmsClassifier}: DEBIT, CREDIT or NONE, and how sure it is.
+ */
+public final class Classification {
+    private final TransactionType type;
+    private final float confidence;
+
+    public Classification(TransactionType type, float confidence) {
+        this.type = type;
+        this.confidence = confidence;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * The type, or UNKNOWN if the confidence is below the threshold.
+     */
+    public TransactionType typeAt(float threshold) {
+        return confidence < threshold ? TransactionType.UNKNOWN : type;
+    }
+
+    @Override
+    public String toString() {
+        return "Classification{type=" + type + ", confidence=" + confidence + "}";
+    }
+}
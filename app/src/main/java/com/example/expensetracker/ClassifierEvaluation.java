@@ -0,0 +1,117 @@
+package com.example.expensetracker;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ai.onnxruntime.OrtException;
+
+/**
+ * Measures an {@link SmsClassifier} on a labeled corpus and calibrates the shared
+ * confidence threshold, so rule, model and cascade can be compared on equal terms.
+ */
+final class ClassifierEvaluation {
+
+    private ClassifierEvaluation() {
+    }
+
+    /**
+     * Accuracy and speed of one classifier at one threshold.
+     */
+    static final class Report {
+        final int total;
+        final int correct;
+        final int unknown;
+        final long totalNanos;
+
+        Report(int total, int correct, int unknown, long totalNanos) {
+            this.total = total;
+            this.correct = correct;
+            this.unknown = unknown;
+            this.totalNanos = totalNanos;
+        }
+
+        /** Share of messages with the labeled type; UNKNOWN counts as wrong. */
+        double accuracy() {
+            return total == 0 ? 0.0 : (double) correct / total;
+        }
+
+        /** Share of decided (non-UNKNOWN) messages that are correct. */
+        double precision() {
+            int decided = total - unknown;
+            return decided == 0 ? 0.0 : (double) correct / decided;
+        }
+
+        long nanosPerMessage() {
+            return total == 0 ? 0 : totalNanos / total;
+        }
+
+        @Override
+        public String toString() {
+            return "Report{accuracy=" + accuracy() + ", precision=" + precision() + ", unknown=" + unknown
+                    + "/" + total + ", nanosPerMessage=" + nanosPerMessage() + "}";
+        }
+    }
+
+    /**
+     * @param labels expected type per text: DEBIT, CREDIT or NONE
+     */
+    static Report evaluate(SmsClassifier classifier, float threshold, List<String> texts,
+                           List<TransactionType> labels) throws OrtException {
+        requireSameSize(texts, labels);
+        int correct = 0;
+        int unknown = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < texts.size(); i++) {
+            TransactionType type = classifier.classify(texts.get(i)).typeAt(threshold);
+            if (type == TransactionType.UNKNOWN) {
+                unknown++;
+            } else if (type == labels.get(i)) {
+                correct++;
+            }
+        }
+        return new Report(texts.size(), correct, unknown, System.nanoTime() - start);
+    }
+
+    /**
+     * Lowest threshold at which the decided messages reach the target precision, so as few
+     * messages as possible end up UNKNOWN. Returns 1 if no threshold reaches it.
+     */
+    static float calibrate(SmsClassifier classifier, List<String> texts, List<TransactionType> labels,
+                           double targetPrecision) throws OrtException {
+        requireSameSize(texts, labels);
+        int n = texts.size();
+        float[] confidences = new float[n];
+        boolean[] right = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Classification classification = classifier.classify(texts.get(i));
+            confidences[i] = classification.getConfidence();
+            right[i] = classification.getType() == labels.get(i);
+        }
+
+        // Try every observed confidence as the threshold, lowest first
+        float[] candidates = confidences.clone();
+        Arrays.sort(candidates);
+        for (float threshold : candidates) {
+            int decided = 0;
+            int correct = 0;
+            for (int i = 0; i < n; i++) {
+                if (confidences[i] >= threshold) {
+                    decided++;
+                    if (right[i]) {
+                        correct++;
+                    }
+                }
+            }
+            if (decided > 0 && (double) correct / decided >= targetPrecision) {
+                return threshold;
+            }
+        }
+        return 1f;
+    }
+
+    private static void requireSameSize(List<String> texts, List<TransactionType> labels) {
+        if (texts.size() != labels.size()) {
+            throw new IllegalArgumentException("texts and labels must have the same size");
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.expensetracker;
+
+/**
+ * Single-pass payee/merchant extraction for transaction SMS.
+ *
+ * Walks the words of the SMS once and reports the best span as offsets into the original text,
+ * in order of preference: the words after "to", after "at", the id after "VPA", the words after
+ * "from", the words just before "via", and the words after "debited"/"credited"/"spent" etc.
+ * A span ends at a word containing a digit, a stop word ("on", "via", "ref", ...), another marker,
+ * or a word ending in '.' or ',' other than a title ("Mr. Sharma"). Words are matched without
+ * their leading and trailing punctuation, so "(Ref" is a stop word. Spans starting with an account
+ * word ("to your A/c") are dropped.
+ *
+ * "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI" gives "AMAZON PAY".
+ * Nothing is allocated unless the caller asks for the string via {@link #extract}.
+ */
+final class DescriptionScanner {
+    static final long NOT_FOUND = -1;
+    static final int MAX_LENGTH = 50;
+
+    // Span kinds, doubling as ranks: lower wins
+    private static final int NO_SPAN = -1;
+    private static final int TO = 0;
+    private static final int AT = 1;
+    private static final int VPA = 2;
+    private static final int FROM = 3;
+    private static final int BEFORE_VIA = 4;
+    private static final int AFTER_KEYWORD = 5;
+
+    private static final String[] KEYWORDS = {"debited", "credited", "received", "spent", "paid", "sent"};
+    private static final String[] ACCOUNT_WORDS = {"a/c", "ac", "acct", "account", "card", "your"};
+
+    private DescriptionScanner() {
+    }
+
+    /**
+     * Description found in the SMS, or null. The only allocation is the returned string.
+     */
+    static String extract(CharSequence sms) {
+        long span = findSpan(sms);
+        return span == NOT_FOUND ? null : sms.subSequence(spanStart(span), spanEnd(span)).toString();
+    }
+
+    static int spanStart(long span) {
+        return (int) (span >>> 32);
+    }
+
+    static int spanEnd(long span) {
+        return (int) span;
+    }
+
+    /**
+     * Best description span packed as (start << 32 | end), or {@link #NOT_FOUND}.
+     */
+    static long findSpan(CharSequence sms) {
+        if (sms == null) {
+            return NOT_FOUND;
+        }
+        int length = sms.length();
+        long best = NOT_FOUND;
+        int bestRank = Integer.MAX_VALUE;
+
+        // Span opened by the last marker, filled with the plain words that follow it
+        int spanKind = NO_SPAN;
+        int spanStart = -1;
+        int spanEnd = -1;
+        // Run of plain words since the last boundary, for "<run> via"
+        int runStart = -1;
+        int runEnd = -1;
+
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(sms.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            boolean hasDigit = false;
+            while (i < length && !Character.isWhitespace(sms.charAt(i))) {
+                char c = sms.charAt(i);
+                hasDigit |= c >= '0' && c <= '9';
+                i++;
+            }
+            int end = i;
+            // Ignore surrounding punctuation: "PAY." -> "PAY", "to:" -> "to", "(Ref" -> "Ref"
+            int wordEnd = end;
+            while (wordEnd > start + 1 && !isWordChar(sms.charAt(wordEnd - 1))) {
+                wordEnd--;
+            }
+            int wordStart = start;
+            while (wordStart < wordEnd - 1 && !isWordChar(sms.charAt(wordStart))) {
+                wordStart++;
+            }
+            char last = sms.charAt(end - 1);
+            boolean closes = (last == '.' || last == ',' || last == ';')
+                    && !SmsWords.matchesAny(sms, wordStart, wordEnd, SmsWords.TITLES);
+
+            int marker = markerKind(sms, wordStart, wordEnd);
+            boolean isVia = SmsWords.regionEquals(sms, wordStart, wordEnd, "via");
+            boolean boundary = hasDigit || marker != NO_SPAN || isVia
+                    || SmsWords.matchesAny(sms, wordStart, wordEnd, SmsWords.PAYEE_STOP_WORDS);
+
+            if (spanKind != NO_SPAN) {
+                boolean fits = spanStart < 0 || wordEnd - spanStart <= MAX_LENGTH;
+                // A VPA is a single id such as "merchant-123@ybl", so digits do not end it
+                if ((!boundary || spanKind == VPA) && fits) {
+                    if (spanStart < 0 && spanKind != VPA
+                            && SmsWords.matchesAny(sms, wordStart, wordEnd, ACCOUNT_WORDS)) {
+                        // "to your A/c", "from A/c XX1234": not a payee
+                        spanKind = NO_SPAN;
+                    } else {
+                        if (spanStart < 0) {
+                            spanStart = wordStart;
+                        }
+                        spanEnd = Math.min(wordEnd, spanStart + MAX_LENGTH);
+                        if (closes || spanKind == VPA) {
+                            if (spanKind < bestRank) {
+                                best = pack(spanStart, spanEnd);
+                                bestRank = spanKind;
+                            }
+                            spanKind = NO_SPAN;
+                        }
+                    }
+                } else {
+                    if (spanStart >= 0 && spanKind < bestRank) {
+                        best = pack(spanStart, spanEnd);
+                        bestRank = spanKind;
+                    }
+                    spanKind = NO_SPAN;
+                }
+                if (bestRank == TO) {
+                    return best;
+                }
+            }
+
+            if (isVia && runStart >= 0 && BEFORE_VIA < bestRank) {
+                best = pack(runStart, Math.min(runEnd, runStart + MAX_LENGTH));
+                bestRank = BEFORE_VIA;
+            }
+            if (boundary) {
+                runStart = -1;
+            } else {
+                if (runStart < 0) {
+                    runStart = wordStart;
+                }
+                runEnd = wordEnd;
+                if (closes) {
+                    // Keep the run only up to the end of the sentence
+                    runStart = -1;
+                }
+            }
+
+            if (marker != NO_SPAN) {
+                spanKind = marker;
+                spanStart = -1;
+                spanEnd = -1;
+            }
+        }
+        if (spanKind != NO_SPAN && spanStart >= 0 && spanKind < bestRank) {
+            best = pack(spanStart, spanEnd);
+        }
+        return best;
+    }
+
+    private static int markerKind(CharSequence sms, int start, int end) {
+        if (SmsWords.regionEquals(sms, start, end, "to")) return TO;
+        if (SmsWords.regionEquals(sms, start, end, "at")) return AT;
+        if (SmsWords.regionEquals(sms, start, end, "vpa")) return VPA;
+        if (SmsWords.regionEquals(sms, start, end, "from")) return FROM;
+        if (SmsWords.matchesAny(sms, start, end, KEYWORDS)) return AFTER_KEYWORD;
+        return NO_SPAN;
+    }
+
+    private static long pack(int start, int end) {
+        return ((long) start << 32) | end;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '@' || c == '-';
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.expensetracker;
+
+import java.util.EnumSet;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtProvider;
+
+/**
+ * ONNX Runtime CPU backends the helper can run the model on.
+ */
+public enum ExecutionProvider {
+    /** ORT's default CPU kernels; always available. */
+    CPU,
+    /** XNNPACK's optimized CPU kernels, when the ORT build includes them. */
+    XNNPACK;
+
+    boolean isAvailable() {
+        if (this == CPU) {
+            return true;
+        }
+        EnumSet<OrtProvider> providers = OrtEnvironment.getAvailableProviders();
+        return providers.contains(OrtProvider.XNNPACK);
+    }
+}
@@ -1,39 +1,124 @@
 package com.example.expensetracker;
 
 import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.content.ContextCompat;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxJavaType;
 import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
 import ai.onnxruntime.OrtEnvironment;
 import ai.onnxruntime.OrtException;
 import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
 
 /**
- * ONNX helper: loads sms_model.onnx and runs inference on SMS text.
+ * ONNX helper: loads sms_model.onnx (or a quantized {@link ModelVariant}) and runs inference on SMS text.
  * 
  * Requirement: assets/sms_model.onnx
  */
 public class GenerativeModelHelper {
     private static final String TAG = "GenerativeModelHelper";
-    private static final float CONFIDENCE_THRESHOLD = 0.5f;
+    static final String DEFAULT_MODEL_ASSET = "sms_model.onnx";
+    // Used when the model's sequence axis is dynamic
+    private static final int[] DEFAULT_LENGTH_BUCKETS = {32, 64, 128, 256};
+    private static final int FALLBACK_INPUT_SIZE = 128;
+    static final int DEFAULT_INFERENCE_THREADS = 1;
+    static final int DEFAULT_INFERENCE_QUEUE_CAPACITY = 32;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    private static final Classification EMPTY_OUTPUT = new Classification(TransactionType.UNKNOWN, 0f);
+    // Typical inbox messages, one per default length bucket, for provider calibration and warm-up
+    private static final String[] REPRESENTATIVE_SMS = {
+            "Rs.99 debited via UPI",
+            "Rs.450 spent on your card XX4321 at SWIGGY",
+            "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI. Avl bal Rs.10,234.50",
+            "Dear Customer, INR 25,000.00 credited to your A/c XX5678 on 01-04-24 by NEFT from ACME CORP "
+                    + "PVT LTD (Ref no 401234567890). Available balance INR 1,02,345.67. Call 1800-000-000 if not you.",
+            "123456 is your OTP for the transaction of Rs.2,999 at FLIPKART. Valid for 10 minutes. Do not share "
+                    + "this OTP with anyone, including bank staff. If you did not initiate this request, please call "
+                    + "our 24x7 helpline immediately to block your card and report the attempt.",
+    };
+    private static final int CALIBRATION_ROUNDS = 10;
+    private static final int MAX_WARMUP_ROUNDS = 8;
+    // Warm-up stops once a round is less than this much faster than the one before
+    private static final double WARMUP_SETTLED_GAIN = 0.1;
 
     private final Context context;
+    private final String modelAsset;
+    private final InferenceConfig config;
+    private final ResultCache<ParsedTransaction> resultCache; // Results keyed by normalized SMS text
+    private final ResultCache<TransactionType> templateCache; // Type decisions keyed by template skeleton
+    private final ProviderCalibration providerCalibration;
+    private final TransactionPrefilter prefilter; // Null when disabled in the config
+    private final AtomicLong prefilterRejections = new AtomicLong();
+    private final AtomicLong droppedRequests = new AtomicLong(); // Cancelled or expired before running
+    private final InferenceMetrics metrics; // Null when disabled in the config
+    private final SmsClassifier modelClassifier = new ModelClassifier();
+    private final CascadeClassifier cascade; // Rules in front of the model; null when disabled
+    private final SmsClassifier classifier; // The cascade, or the model alone
+    private final ThreadPoolExecutor inferenceExecutor;
+    private final Executor mainExecutor;
     private OrtEnvironment env;
     private OrtSession session;
+    private MappedByteBuffer modelBuffer; // Kept alive for the session when the model is mapped
+    private volatile String modelHash = null; // SHA-256 of the model file, set during load
+    private volatile ExecutionProvider executionProvider = null; // Provider the session runs on, set during load
+    private volatile long modelLoadMillis = -1;
+    private volatile long warmupMillis = -1;
     private volatile boolean modelReady = false;
-    private volatile boolean isLoading = false;
-    private ModelStatusCallback pendingCallback = null;
-    private int inputVectorSize = -1; // Detected from model
+    private volatile boolean closed = false; // Set by shutdown; stops the load from publishing and runs from starting
+    private volatile boolean warmingUp = false; // Warm-up runs are not requests and stay out of the metrics
+    // Completed by the load thread once the model is ready, or exceptionally if loading fails
+    private final CompletableFuture<GenerativeModelHelper> readiness = new CompletableFuture<>();
+    private final AtomicInteger waitingForModel = new AtomicInteger(); // Requests queued behind the load
+    private int inputVectorSize = -1; // Detected from model; largest length bucket
+    private int[] lengthBuckets = null; // Ascending input lengths; a single entry for fixed-size models
+    private boolean dynamicBatch = false; // Whether the model accepts [N, length] inputs
+    private String inputName = null; // First model input, detected with the shape
+    private String outputName = null; // First model output
+    private int outputClasses = -1; // Width of a float [N, C] output; -1 if unknown or not float
+    private final ThreadLocal<InferenceBuffers> threadBuffers = new ThreadLocal<>();
+    private final Set<InferenceBuffers> allBuffers = ConcurrentHashMap.newKeySet();
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private volatile MicroBatcher microBatcher = null; // Opt-in, see enableMicroBatching
 
     public interface ModelStatusCallback {
         void onStatusChecked(int status);
@@ -49,286 +134,1292 @@ public class GenerativeModelHelper {
         void onFailure(String error);
     }
 
+    public interface BatchGenerationCallback {
+        /** One JSON response per input message, in input order. */
+        void onSuccess(List<String> responses);
+        void onFailure(String error);
+    }
+
+    public interface TransactionCallback {
+        void onSuccess(ParsedTransaction result);
+        void onFailure(String error);
+    }
+
+    public interface BatchTransactionCallback {
+        /** One result per input message, in input order. */
+        void onSuccess(List<ParsedTransaction> results);
+        void onFailure(String error);
+    }
+
+    /**
+     * Prefer {@link ModelRegistry#acquire(Context)} so screens share one loaded session.
+     */
     public GenerativeModelHelper(Context context) {
-        this.context = context;
+        this(context, DEFAULT_INFERENCE_THREADS, DEFAULT_INFERENCE_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param inferenceThreads number of threads running preprocessing and session.run
+     * @param queueCapacity max requests waiting for an inference thread; extra requests are rejected
+     */
+    public GenerativeModelHelper(Context context, int inferenceThreads, int queueCapacity) {
+        this(context, new InferenceConfig.Builder()
+                .setInferenceThreads(inferenceThreads)
+                .setQueueCapacity(queueCapacity)
+                .build());
+    }
+
+    /**
+     * Loads the model variant chosen by the config, or by device tier if it names none.
+     */
+    public GenerativeModelHelper(Context context, InferenceConfig config) {
+        this(context, ModelVariant.resolve(context, config.modelVariant).getAssetName(), config);
+    }
+
+    GenerativeModelHelper(Context context, String modelAsset, InferenceConfig config) {
+        // Application context: helpers can outlive the Activity that created them
+        this.context = context.getApplicationContext();
+        this.modelAsset = modelAsset;
+        this.config = config;
+        this.resultCache = new ResultCache<>(config.resultCacheSize, config.resultCacheTtlMillis);
+        this.templateCache = new ResultCache<>(config.templateCacheSize, 0);
+        this.providerCalibration = new ProviderCalibration(this.context);
+        this.metrics = config.metricsEnabled ? new InferenceMetrics() : null;
+        this.prefilter = config.prefilterEnabled ? TransactionPrefilter.createDefault() : null;
+        this.cascade = config.ruleCascadeEnabled
+                ? new CascadeClassifier(new RuleBasedClassifier(), modelClassifier, CascadeClassifier.DEFAULT_TRUST_THRESHOLD)
+                : null;
+        this.classifier = cascade != null ? cascade : modelClassifier;
+        this.mainExecutor = ContextCompat.getMainExecutor(this.context);
+        this.inferenceExecutor = createInferenceExecutor(config.inferenceThreads, config.queueCapacity,
+                this::releaseThreadBuffers);
         initializeModels();
     }
 
+    /**
+     * Bounded pool for model loading and inference so ONNX never runs on the UI thread.
+     * Idle threads time out; onWorkerExit runs on each thread as it ends.
+     */
+    private static ThreadPoolExecutor createInferenceExecutor(int threads, int queueCapacity, Runnable onWorkerExit) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Runnable worker = () -> {
+                        try {
+                            r.run();
+                        } finally {
+                            onWorkerExit.run();
+                        }
+                    };
+                    Thread t = new Thread(worker, "onnx-inference-" + threadCount.incrementAndGet());
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private void initializeModels() {
-        isLoading = true;
-        // Use background thread to avoid blocking UI thread (prevents ANR)
-        Executor backgroundExecutor = Executors.newSingleThreadExecutor();
-        Executor mainExecutor = ContextCompat.getMainExecutor(context);
-        
-        backgroundExecutor.execute(() -> {
+        // Load on the inference executor to avoid blocking UI thread (prevents ANR)
+        inferenceExecutor.execute(() -> {
             try {
+                long loadStart = SystemClock.elapsedRealtime();
                 env = OrtEnvironment.getEnvironment();
 
-                byte[] modelBytes = loadAssetBytes("sms_model.onnx");
-                session = env.createSession(modelBytes);
+                session = createSessionFromAsset(modelAsset);
 
                 // Detect input tensor shape from model
                 detectInputShape();
+                if (config.executionProvider == null && providerCalibration.get(modelHash) == null) {
+                    calibrateProvider();
+                }
+                resultCache.setModelVersion(modelHash);
+                templateCache.setModelVersion(modelHash);
 
+                if (closed) {
+                    return; // Shut down meanwhile; the shutdown thread closes the session
+                }
+
+                modelLoadMillis = SystemClock.elapsedRealtime() - loadStart;
+                // Still on the load thread: callers only see the model once first-run latency has settled
+                warmingUp = true;
+                warmUp();
+                warmingUp = false;
                 modelReady = true;
-                isLoading = false;
-                Log.d(TAG, "✅ ONNX model loaded, input size: " + inputVectorSize);
-                
-                // Notify pending callback on main thread if any
-                if (pendingCallback != null) {
-                    ModelStatusCallback callback = pendingCallback;
-                    pendingCallback = null;
-                    mainExecutor.execute(() -> {
-                        callback.onStatusChecked(1); // available
-                        callback.onModelReady();
-                    });
+                if (closed) {
+                    // Lost a race with shutdown, which sets closed before clearing modelReady
+                    modelReady = false;
+                    return;
                 }
+                Log.d(TAG, "✅ ONNX model loaded in " + modelLoadMillis + " ms, warmed up in " + warmupMillis
+                        + " ms, input size: " + inputVectorSize + ", provider: " + executionProvider);
 
+                // Analyses queued during the load are submitted right here, on the load thread
+                readiness.complete(this);
             } catch (Exception e) {
                 Log.e(TAG, "Failed to load ONNX model", e);
                 modelReady = false;
-                isLoading = false;
-                
-                // Notify pending callback of failure on main thread
-                if (pendingCallback != null) {
-                    ModelStatusCallback callback = pendingCallback;
-                    pendingCallback = null;
-                    mainExecutor.execute(() -> {
-                        callback.onStatusChecked(2); // unavailable
-                        callback.onDownloadFailed("Failed to load ONNX model: " + e.getMessage());
-                    });
-                }
+                readiness.completeExceptionally(e);
             }
         });
     }
 
     /**
-     * Detect input tensor shape from the model.
-     * Since ONNX Runtime Android API doesn't provide direct shape access,
-     * we use a default size and allow dynamic adjustment.
+     * Detect input/output shapes from the model's TensorInfo metadata.
+     * A fixed sequence axis gives one input length; a dynamic one enables length bucketing,
+     * so short messages run on small tensors and long ones are not truncated at 128.
      */
     private void detectInputShape() throws OrtException {
         if (session == null) {
             throw new IllegalStateException("Session not initialized");
         }
 
-        Set<String> inputNames = session.getInputNames();
-        if (inputNames.isEmpty()) {
+        Map<String, NodeInfo> inputInfo = session.getInputInfo();
+        if (inputInfo.isEmpty()) {
             throw new IllegalStateException("Model has no inputs");
         }
+        Map.Entry<String, NodeInfo> input = inputInfo.entrySet().iterator().next();
+        inputName = input.getKey();
 
-        // ONNX Runtime Android doesn't provide direct access to input metadata
-        // Use a reasonable default size (128) for SMS text encoding
-        // This can be adjusted based on your model's expected input size
-        inputVectorSize = 128; // Default size
-        
-        Log.d(TAG, "Using default input vector size: " + inputVectorSize + " (model has " + inputNames.size() + " input(s))");
-        
-        // Optional: Try to infer size from a test run if needed
-        // For now, we'll use the default and let padding handle shorter texts
+        if (!(input.getValue().getInfo() instanceof TensorInfo)) {
+            Log.w(TAG, "Input " + inputName + " is not a tensor, using default size " + FALLBACK_INPUT_SIZE);
+            setLengthBuckets(new int[]{FALLBACK_INPUT_SIZE});
+            dynamicBatch = false;
+            return;
+        }
+
+        TensorInfo tensorInfo = (TensorInfo) input.getValue().getInfo();
+        long[] shape = tensorInfo.getShape();
+        if (shape.length != 2) {
+            throw new IllegalStateException("Expected [batch, length] input, got " + Arrays.toString(shape));
+        }
+        if (tensorInfo.type != OnnxJavaType.FLOAT) {
+            throw new IllegalStateException("Expected float input, got " + tensorInfo.type);
+        }
+
+        // Negative dimensions are symbolic (dynamic) axes
+        dynamicBatch = shape[0] < 0;
+        if (shape[1] > 0) {
+            setLengthBuckets(new int[]{(int) shape[1]});
+        } else {
+            setLengthBuckets(DEFAULT_LENGTH_BUCKETS.clone());
+        }
+
+        Log.d(TAG, "Input " + inputName + " shape " + Arrays.toString(shape)
+                + ", length buckets " + Arrays.toString(lengthBuckets)
+                + (dynamicBatch ? ", dynamic batch" : ", fixed batch"));
+
+        NodeInfo output = session.getOutputInfo().values().iterator().next();
+        outputName = output.getName();
+        outputClasses = -1;
+        if (output.getInfo() instanceof TensorInfo) {
+            TensorInfo outputInfo = (TensorInfo) output.getInfo();
+            long[] outputShape = outputInfo.getShape();
+            // A float [N, C] output with a fixed C can be pinned and decoded in place
+            if (outputInfo.type == OnnxJavaType.FLOAT && outputShape.length == 2 && outputShape[1] > 0) {
+                outputClasses = (int) outputShape[1];
+            }
+            Log.d(TAG, "Output " + outputName + " shape " + Arrays.toString(outputShape)
+                    + (outputClasses > 0 ? ", pinned" : ", allocated by ORT"));
+        }
+    }
+
+    private void setLengthBuckets(int[] buckets) {
+        lengthBuckets = buckets;
+        inputVectorSize = buckets[buckets.length - 1];
+    }
+
+    /**
+     * Index of the smallest bucket that fits the text; the largest bucket truncates.
+     */
+    private int bucketFor(int length) {
+        for (int i = 0; i < lengthBuckets.length; i++) {
+            if (length <= lengthBuckets[i]) {
+                return i;
+            }
+        }
+        return lengthBuckets.length - 1;
+    }
+
+    /**
+     * Create the session without copying the model onto the Java heap.
+     * Uncompressed assets (see noCompress in build.gradle.kts) are memory-mapped straight from the APK;
+     * otherwise the asset is extracted once to app storage and mapped from there.
+     * With cacheOptimizedModel, the optimized graph is saved keyed by model hash and reused next launch.
+     * ORT only recommends saving fully optimized graphs for the CPU provider, so XNNPACK sessions
+     * always optimize online, and fall back to CPU if XNNPACK cannot be registered.
+     */
+    private OrtSession createSessionFromAsset(String name) throws IOException, OrtException {
+        modelBuffer = mapAsset(name);
+        modelHash = sha256Hex(modelBuffer);
+
+        executionProvider = selectProvider();
+        if (executionProvider != ExecutionProvider.CPU) {
+            try (OrtSession.SessionOptions options = config.createSessionOptions(false, executionProvider)) {
+                return env.createSession(modelBuffer, options);
+            } catch (OrtException e) {
+                Log.w(TAG, executionProvider + " session failed, falling back to CPU", e);
+                executionProvider = ExecutionProvider.CPU;
+                if (config.executionProvider == null) {
+                    // Don't retry the failing calibrated provider on every launch
+                    providerCalibration.put(modelHash, ExecutionProvider.CPU);
+                }
+            }
+        }
+
+        if (!config.cacheOptimizedModel) {
+            try (OrtSession.SessionOptions options = config.createSessionOptions(false)) {
+                return env.createSession(modelBuffer, options);
+            }
+        }
+
+        File cached = optimizedModelFile(name);
+        if (cached.exists()) {
+            try (OrtSession.SessionOptions options = config.createSessionOptions(true)) {
+                OrtSession cachedSession = env.createSession(cached.getAbsolutePath(), options);
+                Log.d(TAG, "Loaded pre-optimized model " + cached.getName());
+                return cachedSession;
+            } catch (OrtException e) {
+                Log.w(TAG, "Optimized model cache unreadable, rebuilding", e);
+                cached.delete();
+            }
+        }
+
+        File tmp = new File(cached.getPath() + ".tmp");
+        try (OrtSession.SessionOptions options = config.createSessionOptions(false)) {
+            options.setOptimizedModelFilePath(tmp.getAbsolutePath());
+            OrtSession optimizedSession = env.createSession(modelBuffer, options);
+            if (tmp.renameTo(cached)) {
+                Log.d(TAG, "Saved optimized model " + cached.getName());
+            } else {
+                Log.w(TAG, "Failed to save optimized model " + cached.getName());
+            }
+            return optimizedSession;
+        }
+    }
+
+    /**
+     * The configured provider, else the calibrated one for this model; CPU if that is unavailable
+     * or calibration has not run yet. An unavailable calibrated provider is stored as CPU, as is one
+     * whose session fails to build, so later launches don't try it again. A configured provider
+     * never touches the store, so it can't overwrite what calibration found for other configs.
+     */
+    private ExecutionProvider selectProvider() {
+        ExecutionProvider provider = config.executionProvider != null
+                ? config.executionProvider
+                : providerCalibration.get(modelHash);
+        if (provider == null) {
+            return ExecutionProvider.CPU;
+        }
+        if (!provider.isAvailable()) {
+            Log.w(TAG, provider + " not in this ONNX Runtime build, using CPU");
+            if (config.executionProvider == null) {
+                providerCalibration.put(modelHash, ExecutionProvider.CPU);
+            }
+            return ExecutionProvider.CPU;
+        }
+        return provider;
+    }
+
+    /**
+     * One-time comparison of the default CPU session with XNNPACK on representative messages.
+     * Keeps the faster session and stores the winner for this device and model hash.
+     * Must run on the inference executor after detectInputShape.
+     */
+    private void calibrateProvider() throws OrtException {
+        ExecutionProvider winner = ExecutionProvider.CPU;
+        if (ExecutionProvider.XNNPACK.isAvailable()) {
+            OrtSession xnnpackSession = null;
+            try (OrtSession.SessionOptions options = config.createSessionOptions(false, ExecutionProvider.XNNPACK)) {
+                xnnpackSession = env.createSession(modelBuffer, options);
+                long cpuNanos = timeRepresentativeRuns(session);
+                long xnnpackNanos = timeRepresentativeRuns(xnnpackSession);
+                winner = ProviderCalibration.pickFaster(cpuNanos, xnnpackNanos);
+                Log.d(TAG, String.format("Provider calibration: CPU=%.3f ms, XNNPACK=%.3f ms per round, using %s",
+                        cpuNanos / 1e6, xnnpackNanos / 1e6, winner));
+            } catch (OrtException e) {
+                Log.w(TAG, "XNNPACK calibration failed, keeping CPU", e);
+                winner = ExecutionProvider.CPU;
+            }
+            if (xnnpackSession != null) {
+                OrtSession unused = winner == ExecutionProvider.XNNPACK ? session : xnnpackSession;
+                if (winner == ExecutionProvider.XNNPACK) {
+                    session = xnnpackSession;
+                }
+                unused.close();
+            }
+        }
+        executionProvider = winner;
+        providerCalibration.put(modelHash, winner);
+    }
+
+    /**
+     * Runs representative messages through the real single and batched paths until the round time
+     * settles, so the first request doesn't pay for kernel setup, arena growth and cold caches.
+     * Every default length bucket is covered. Must run on the load thread before the model is ready.
+     */
+    private void warmUp() {
+        long start = SystemClock.elapsedRealtime();
+        List<String> samples = Arrays.asList(REPRESENTATIVE_SMS);
+        int rounds = 0;
+        try {
+            long previous = Long.MAX_VALUE;
+            while (rounds < MAX_WARMUP_ROUNDS) {
+                long roundStart = SystemClock.elapsedRealtimeNanos();
+                for (String sms : samples) {
+                    scoreSingle(sms);
+                }
+                if (dynamicBatch) {
+                    runBatch(samples);
+                }
+                long elapsed = SystemClock.elapsedRealtimeNanos() - roundStart;
+                rounds++;
+                if (elapsed >= previous * (1 - WARMUP_SETTLED_GAIN)) {
+                    break;
+                }
+                previous = elapsed;
+            }
+        } catch (Exception e) {
+            // A failed warm-up only costs first-request latency
+            Log.w(TAG, "Warm-up failed", e);
+        }
+        warmupMillis = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "Warm-up: " + rounds + " rounds in " + warmupMillis + " ms");
+    }
+
+    /**
+     * Fastest of several rounds over {@link #REPRESENTATIVE_SMS}; the first round only warms up.
+     */
+    private long timeRepresentativeRuns(OrtSession candidate) throws OrtException {
+        InferenceBuffers buffers = buffersForCurrentThread();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round <= CALIBRATION_ROUNDS; round++) {
+            ensureOpen();
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (String sms : REPRESENTATIVE_SMS) {
+                int bucket = bucketFor(SmsFeaturizer.encodedLength(sms));
+                SmsFeaturizer.encode(sms, buffers.beginSingle(bucket), lengthBuckets[bucket]);
+                try (OrtSession.Result result = candidate.run(buffers.singleInputs(bucket))) {
+                    // Only the time matters
+                }
+            }
+            long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+            if (round > 0) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best;
+    }
+
+    private MappedByteBuffer mapAsset(String name) throws IOException {
+        try (AssetFileDescriptor afd = context.getAssets().openFd(name);
+             FileInputStream in = afd.createInputStream()) {
+            MappedByteBuffer mapped = in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    afd.getStartOffset(), afd.getDeclaredLength());
+            Log.d(TAG, "Memory-mapped model asset " + name + " (" + mapped.capacity() + " bytes)");
+            return mapped;
+        } catch (FileNotFoundException e) {
+            // openFd fails for compressed assets
+            Log.w(TAG, "Model asset is compressed, extracting " + name + " to app storage");
+            File modelFile = extractAsset(name);
+            try (FileInputStream in = new FileInputStream(modelFile)) {
+                return in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, modelFile.length());
+            }
+        }
+    }
+
+    /**
+     * Cache file for the optimized graph. Keyed by model hash and optimization level;
+     * stale entries for the same asset are removed.
+     */
+    private File optimizedModelFile(String name) {
+        File dir = new File(context.getFilesDir(), "ort_cache");
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Failed to create " + dir);
+        }
+        String prefix = name + "-";
+        String fileName = prefix + modelHash.substring(0, 16) + "-" + config.optimizationLevel.name() + ".onnx";
+        File[] existing = dir.listFiles();
+        if (existing != null) {
+            for (File f : existing) {
+                if (f.getName().startsWith(prefix) && !f.getName().equals(fileName)) {
+                    f.delete();
+                }
+            }
+        }
+        return new File(dir, fileName);
     }
 
-    private byte[] loadAssetBytes(String name) throws IOException {
-        InputStream is = context.getAssets().open(name);
+    private static String sha256Hex(ByteBuffer buffer) {
         try {
-            int size = is.available();
-            byte[] b = new byte[size];
-            int totalRead = 0;
-            while (totalRead < size) {
-                int read = is.read(b, totalRead, size - totalRead);
-                if (read == -1) break;
-                totalRead += read;
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buffer.duplicate());
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
             }
-            return b;
-        } finally {
-            is.close();
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
-    public void checkAndPrepareModel(ModelStatusCallback callback) {
+    /**
+     * Stream an asset to filesDir with a fixed-size buffer.
+     * The extracted copy is reused until the app is updated.
+     */
+    private File extractAsset(String name) throws IOException {
+        File target = new File(context.getFilesDir(), name);
+        if (target.exists() && target.lastModified() >= appLastUpdateTime()) {
+            return target;
+        }
+
+        File tmp = new File(context.getFilesDir(), name + ".tmp");
+        byte[] chunk = new byte[64 * 1024];
+        try (InputStream is = context.getAssets().open(name);
+             OutputStream os = new FileOutputStream(tmp)) {
+            int read;
+            while ((read = is.read(chunk)) != -1) {
+                os.write(chunk, 0, read);
+            }
+        }
+        if (!tmp.renameTo(target)) {
+            throw new IOException("Failed to move extracted model to " + target);
+        }
+        Log.d(TAG, "Extracted model asset " + name + " (" + target.length() + " bytes)");
+        return target;
+    }
+
+    private long appLastUpdateTime() {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return Long.MAX_VALUE; // Always re-extract
+        }
+    }
+
+    /**
+     * Reports the model status, and if it is still loading, calls back again on the main thread
+     * once loading ends. Cancel the returned handle in onDestroy: that drops the reference to the
+     * callback, so a pending notification does not keep the Activity alive.
+     */
+    public InferenceHandle checkAndPrepareModel(ModelStatusCallback callback) {
+        InferenceHandle handle = new InferenceHandle(InferenceHandle.NO_TIMEOUT);
         if (modelReady) {
             // Model is ready
+            handle.finish();
             callback.onStatusChecked(1); // available
             callback.onModelReady();
-        } else if (isLoading) {
-            // Model is still loading, store callback to notify when done
-            pendingCallback = callback;
+        } else if (!readiness.isDone()) {
+            // Model is still loading; every caller is notified on the main thread when done
             callback.onStatusChecked(0); // loading
+            AtomicReference<ModelStatusCallback> pending = new AtomicReference<>(callback);
+            handle.onCancel(() -> pending.set(null));
+            readiness.whenCompleteAsync((helper, error) -> {
+                ModelStatusCallback target = pending.getAndSet(null);
+                if (target == null || !handle.finish()) {
+                    return; // Cancelled
+                }
+                if (error == null) {
+                    target.onStatusChecked(1); // available
+                    target.onModelReady();
+                } else {
+                    target.onStatusChecked(2); // unavailable
+                    target.onDownloadFailed("Failed to load ONNX model: " + error.getMessage());
+                }
+            }, mainExecutor);
             Log.d(TAG, "Model is loading, callback will be notified when ready");
         } else {
-            // Model failed to load or not started
+            // Model failed to load or was shut down
+            handle.finish();
             callback.onStatusChecked(2); // unavailable
             callback.onDownloadFailed("ONNX model not loaded");
         }
+        return handle;
     }
 
     /**
-     * Main entry: send SMS text here.
-     * Returns JSON with type, amount, description (null if confidence low).
+     * Completes with this helper once the model is loaded and warmed up, or exceptionally if loading
+     * fails. Any number of callers may chain on it. Plain dependents run on the inference thread that
+     * finished loading; use the *Async variants with an executor, such as the main executor, for UI work.
+     */
+    public CompletableFuture<GenerativeModelHelper> whenReady() {
+        // A dependent stage, so callers cannot complete the helper's own future
+        return readiness.thenApply(helper -> helper);
+    }
+
+    /**
+     * Holds a request submitted during the load and starts it the moment the model is ready,
+     * on the load thread. At most queueCapacity requests wait; a cancelled one frees its slot
+     * right away, an expired one when the load ends, and all of them fail if the load does.
      */
-    public void generateContent(String smsText, ContentGenerationCallback callback) {
-        // Safety check: Never process if model is not ready
-        if (!modelReady) {
-            callback.onFailure("Model still loading, try again");
+    private void startWhenReady(InferenceHandle handle, Consumer<String> onFailure, Runnable start) {
+        if (waitingForModel.incrementAndGet() > config.queueCapacity) {
+            waitingForModel.decrementAndGet();
+            Log.w(TAG, "Too many requests waiting for the model, rejecting request");
+            deliver(handle, () -> onFailure.accept("Inference queue full, try again"));
             return;
         }
+        AtomicBoolean waiting = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (waiting.compareAndSet(true, false)) {
+                waitingForModel.decrementAndGet();
+            }
+        };
+        handle.onCancel(release);
+        readiness.whenComplete((helper, error) -> {
+            release.run();
+            if (handle.isStale()) {
+                droppedRequests.incrementAndGet();
+            } else if (error != null || !modelReady) {
+                String message = error != null ? error.getMessage() : "ONNX model not loaded";
+                deliver(handle, () -> onFailure.accept("Failed to load ONNX model: " + message));
+            } else {
+                start.run();
+            }
+        });
+    }
+
+    /**
+     * String API: returns JSON with type, amount, description (null if confidence low).
+     * Prefer {@link #analyzeSms}, which skips the JSON round-trip.
+     */
+    public InferenceHandle generateContent(String smsText, ContentGenerationCallback callback) {
+        return generateContent(smsText, InferenceHandle.NO_TIMEOUT, callback);
+    }
+
+    /**
+     * String API with a deadline, see {@link #analyzeSms(String, long, TransactionCallback)}.
+     */
+    public InferenceHandle generateContent(String smsText, long timeoutMillis, ContentGenerationCallback callback) {
+        return analyzeSms(smsText, timeoutMillis, new TransactionCallback() {
+            @Override
+            public void onSuccess(ParsedTransaction result) {
+                long start = metrics != null ? System.nanoTime() : 0;
+                String json = result.toJson();
+                if (metrics != null) {
+                    metrics.record(InferenceMetrics.Stage.JSON, start);
+                }
+                callback.onSuccess(json);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        });
+    }
+
+    /**
+     * Main entry: send SMS text here.
+     * Delivers a typed result, or any failure, on the main thread; type is UNKNOWN if confidence is low.
+     * A request made while the model is loading starts as soon as it is ready.
+     */
+    public InferenceHandle analyzeSms(String smsText, TransactionCallback callback) {
+        return analyzeSms(smsText, InferenceHandle.NO_TIMEOUT, callback);
+    }
+
+    /**
+     * Like {@link #analyzeSms(String, TransactionCallback)}, but the request is dropped if it has not
+     * reached the model within timeoutMillis (0 waits indefinitely). A request that is cancelled
+     * through the returned handle or expires never calls back.
+     */
+    public InferenceHandle analyzeSms(String smsText, long timeoutMillis, TransactionCallback callback) {
+        InferenceHandle handle = new InferenceHandle(timeoutMillis);
+        if (metrics != null) {
+            metrics.countRequests(1);
+        }
+        TransactionCallback target = metrics != null ? countingFailures(callback) : callback;
+        if (modelReady) {
+            if (!startAnalysis(smsText, handle, target)) {
+                deliver(handle, () -> target.onFailure("Inference queue full, try again"));
+            }
+        } else if (!readiness.isDone()) {
+            // Still loading: start as soon as the session is ready instead of failing
+            startWhenReady(handle, target::onFailure, () -> {
+                if (!startAnalysis(smsText, handle, target)) {
+                    deliver(handle, () -> target.onFailure("Inference queue full, try again"));
+                }
+            });
+        } else {
+            deliver(handle, () -> target.onFailure("ONNX model not loaded"));
+        }
+        return handle;
+    }
+
+    /**
+     * Answers from the prefilter or cache, or queues the message for the model.
+     * Returns false if the inference queue is full.
+     */
+    private boolean startAnalysis(String smsText, InferenceHandle handle, TransactionCallback callback) {
+        if (isFilteredOut(smsText)) {
+            deliver(handle, () -> callback.onSuccess(ParsedTransaction.NONE));
+            return true;
+        }
         
-        Executor executor = ContextCompat.getMainExecutor(context);
-        executor.execute(() -> {
+        ParsedTransaction cached = resultCache.get(smsText);
+        if (cached != null) {
+            deliver(handle, () -> callback.onSuccess(cached));
+            return true;
+        }
+
+        MicroBatcher batcher = microBatcher;
+        if (batcher != null && dynamicBatch) {
+            batcher.submit(smsText, handle, callback);
+            return true;
+        }
+
+        if (!enqueue(handle, () -> runInference(smsText, handle, callback))) {
+            Log.w(TAG, "Inference queue full, rejecting request");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Runs on the inference executor; callbacks are delivered on the main thread.
+     */
+    private void runInference(String smsText, InferenceHandle handle, TransactionCallback callback) {
+        try {
+            // Double-check model is ready
+            if (session == null || inputVectorSize <= 0) {
+                deliver(handle, () -> callback.onFailure("Model sessions not initialized"));
+                return;
+            }
+
+            ParsedTransaction result = classify(smsText);
+            resultCache.put(smsText, result);
+            deliver(handle, () -> callback.onSuccess(result));
+        } catch (Exception e) {
+            Log.e(TAG, "ONNX inference error", e);
+            deliver(handle, () -> callback.onFailure("Inference failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * A queued request that is skipped once its handle is cancelled or past its deadline.
+     */
+    private final class QueuedRequest implements Runnable {
+        final InferenceHandle handle;
+        final Runnable work;
+        final long queuedNanos;
+
+        QueuedRequest(InferenceHandle handle, Runnable work) {
+            this.handle = handle;
+            this.work = work;
+            this.queuedNanos = metrics != null ? System.nanoTime() : 0;
+        }
+
+        @Override
+        public void run() {
+            if (metrics != null) {
+                metrics.record(InferenceMetrics.Stage.QUEUE_WAIT, queuedNanos);
+            }
+            if (handle.isStale()) {
+                droppedRequests.incrementAndGet();
+                return;
+            }
+            work.run();
+        }
+    }
+
+    /**
+     * Queues work for the inference executor. Cancelling the handle removes it from the queue, and
+     * a full queue first sheds requests that were cancelled or expired while waiting.
+     * Returns false if the queue is still full.
+     */
+    private boolean enqueue(InferenceHandle handle, Runnable work) {
+        QueuedRequest request = new QueuedRequest(handle, work);
+        try {
+            inferenceExecutor.execute(request);
+        } catch (RejectedExecutionException e) {
+            if (purgeStaleRequests() == 0) {
+                return false;
+            }
             try {
-                // Double-check model is ready
-                if (session == null || inputVectorSize <= 0) {
-                    callback.onFailure("Model sessions not initialized");
-                    return;
+                inferenceExecutor.execute(request);
+            } catch (RejectedExecutionException again) {
+                return false;
+            }
+        }
+        handle.onCancel(() -> {
+            if (inferenceExecutor.remove(request)) {
+                droppedRequests.incrementAndGet();
+            }
+        });
+        return true;
+    }
+
+    private int purgeStaleRequests() {
+        int purged = 0;
+        for (Iterator<Runnable> it = inferenceExecutor.getQueue().iterator(); it.hasNext(); ) {
+            Runnable queued = it.next();
+            if (queued instanceof QueuedRequest && ((QueuedRequest) queued).handle.isStale()) {
+                it.remove();
+                purged++;
+            }
+        }
+        droppedRequests.addAndGet(purged);
+        return purged;
+    }
+
+    /**
+     * Wraps a callback so failures delivered through any path are counted in the metrics.
+     */
+    private TransactionCallback countingFailures(TransactionCallback callback) {
+        return new TransactionCallback() {
+            @Override
+            public void onSuccess(ParsedTransaction result) {
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                metrics.countFailure();
+                callback.onFailure(error);
+            }
+        };
+    }
+
+    private BatchTransactionCallback countingFailures(BatchTransactionCallback callback) {
+        return new BatchTransactionCallback() {
+            @Override
+            public void onSuccess(List<ParsedTransaction> results) {
+                callback.onSuccess(results);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                metrics.countFailure();
+                callback.onFailure(error);
+            }
+        };
+    }
+
+    /**
+     * Posts a callback to the main thread unless the request is cancelled before it runs.
+     */
+    private void deliver(InferenceHandle handle, Runnable callback) {
+        mainExecutor.execute(() -> {
+            if (handle.finish()) {
+                callback.run();
+            }
+        });
+    }
+
+    /**
+     * Whether the keyword prefilter rules the message out, so it never reaches the model.
+     */
+    private boolean isFilteredOut(String smsText) {
+        if (prefilter == null || prefilter.mightBeTransaction(smsText)) {
+            return false;
+        }
+        prefilterRejections.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Classifies one message, reusing the type decision of a previously seen template
+     * so only the amount/description extractors run.
+     */
+    private ParsedTransaction classify(String smsText) throws OrtException {
+        String skeleton = TemplateCanonicalizer.skeleton(smsText);
+        TransactionType type = templateCache.get(skeleton);
+        if (type != null) {
+            return resultForType(type, smsText);
+        }
+        ParsedTransaction result = decide(classifier.classify(smsText), smsText);
+        rememberTemplate(skeleton, result);
+        return result;
+    }
+
+    /**
+     * The ONNX model behind the {@link SmsClassifier} interface. Must be called on an inference thread.
+     */
+    private final class ModelClassifier implements SmsClassifier {
+        @Override
+        public Classification classify(String smsText) throws OrtException {
+            return scoreSingle(smsText);
+        }
+    }
+
+    /**
+     * Only confident decisions are remembered; low-confidence messages keep going to the model.
+     */
+    private void rememberTemplate(String skeleton, ParsedTransaction result) {
+        if (result.getType() != TransactionType.UNKNOWN) {
+            templateCache.put(skeleton, result.getType());
+        }
+    }
+
+    /**
+     * Metrics for per-stage timings, or null when disabled or while warming up.
+     */
+    private InferenceMetrics stageMetrics() {
+        return warmingUp ? null : metrics;
+    }
+
+    /**
+     * Scores one message with the model on the smallest fitting length bucket.
+     * Must be called on an inference thread.
+     */
+    private Classification scoreSingle(String smsText) throws OrtException {
+        ensureOpen();
+        InferenceMetrics stages = stageMetrics();
+        long t = stages != null ? System.nanoTime() : 0;
+        // Preprocess SMS text straight into this thread's direct input buffer
+        InferenceBuffers buffers = buffersForCurrentThread();
+        int bucket = bucketFor(SmsFeaturizer.encodedLength(smsText));
+        SmsFeaturizer.encode(smsText, buffers.beginSingle(bucket), lengthBuckets[bucket]);
+        if (stages != null) {
+            t = stages.record(InferenceMetrics.Stage.PREPROCESS, t);
+        }
+
+        // Run inference; the pooled tensor already points at the features
+        Classification classification;
+        if (buffers.hasPinnedOutput()) {
+            // ORT writes scores into the pinned buffer; the Result doesn't own it
+            try (OrtSession.Result result = session.run(buffers.singleInputs(bucket), buffers.singleOutputs())) {
+                if (stages != null) {
+                    t = stages.record(InferenceMetrics.Stage.SESSION_RUN, t);
                 }
+                classification = decodeScores(buffers.singleOutput(), 0, outputClasses);
+            }
+        } else {
+            try (OrtSession.Result result = session.run(buffers.singleInputs(bucket))) {
+                if (stages != null) {
+                    t = stages.record(InferenceMetrics.Stage.SESSION_RUN, t);
+                }
+                // Parse model output
+                classification = parseModelOutput(result);
+            }
+        }
+        if (stages != null) {
+            stages.record(InferenceMetrics.Stage.PARSE_OUTPUT, t);
+        }
+        return classification;
+    }
 
-                // Preprocess SMS text into float vector
-                float[] features = preprocessSmsText(smsText, inputVectorSize);
-
-                // Prepare tensor: shape [1, inputVectorSize] for batch inference
-                long[] shape = new long[]{1, inputVectorSize};
-                FloatBuffer fb = FloatBuffer.wrap(features);
-                
-                // Get input name
-                Set<String> inputNames = session.getInputNames();
-                String inputName = null;
-                if (!inputNames.isEmpty()) {
-                    inputName = inputNames.iterator().next();
+    /**
+     * Max rows per [N, length] tensor; larger batches are split into chunks.
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be > 0");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Opt-in: coalesce concurrent generateContent calls into one batched session.run.
+     * A batch runs after windowMillis or as soon as maxBatchSize requests are pending.
+     * Ignored while the model has a fixed batch axis (see {@link #supportsBatching}): every
+     * request would still run alone, so the window would only add latency.
+     */
+    public synchronized void enableMicroBatching(long windowMillis, int maxBatchSize) {
+        if (modelReady && !dynamicBatch) {
+            Log.w(TAG, "Model has a fixed batch axis, micro-batching has no effect");
+        }
+        MicroBatcher batcher = new MicroBatcher(this::runBatchUncached, inferenceExecutor, mainExecutor,
+                windowMillis, maxBatchSize, metrics, droppedRequests);
+        disableMicroBatching();
+        microBatcher = batcher;
+    }
+
+    public synchronized void disableMicroBatching() {
+        MicroBatcher batcher = microBatcher;
+        microBatcher = null;
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    /**
+     * String API for bulk classification: one JSON response per message, in input order.
+     * Prefer {@link #analyzeSmsBatch}, which skips the JSON round-trip.
+     */
+    public InferenceHandle generateContentBatch(List<String> smsTexts, BatchGenerationCallback callback) {
+        return analyzeSmsBatch(smsTexts, new BatchTransactionCallback() {
+            @Override
+            public void onSuccess(List<ParsedTransaction> results) {
+                long start = metrics != null ? System.nanoTime() : 0;
+                List<String> responses = new ArrayList<>(results.size());
+                for (ParsedTransaction result : results) {
+                    responses.add(result.toJson());
                 }
-                if (inputName == null) {
-                    callback.onFailure("Model has no input");
-                    return;
+                if (metrics != null) {
+                    metrics.record(InferenceMetrics.Stage.JSON, start);
                 }
+                callback.onSuccess(responses);
+            }
 
-                // Run inference
-                try (OnnxTensor inputTensor = OnnxTensor.createTensor(env, fb, shape);
-                     OrtSession.Result result = session.run(java.util.Collections.singletonMap(inputName, inputTensor))) {
-                    
-                    // Parse model output
-                    ModelOutput output = parseModelOutput(result, smsText);
-                    
-                    // Build JSON response
-                    String json = buildJsonResponse(output);
-                    callback.onSuccess(json);
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        });
+    }
+
+    /**
+     * Bulk entry: classifies many SMS texts with one session.run per chunk.
+     * Returns one result per message, in input order. Cancelling the handle stops the
+     * work at the next chunk boundary without calling back. Like analyzeSms, a batch submitted
+     * during the load starts as soon as the model is ready. A model with a fixed batch axis, such
+     * as the shipped sms_model.onnx ([1, 191]), still runs once per message; see
+     * {@link #supportsBatching}.
+     */
+    public InferenceHandle analyzeSmsBatch(List<String> smsTexts, BatchTransactionCallback callback) {
+        InferenceHandle handle = new InferenceHandle(InferenceHandle.NO_TIMEOUT);
+        if (metrics != null) {
+            metrics.countRequests(smsTexts.size());
+        }
+        BatchTransactionCallback target = metrics != null ? countingFailures(callback) : callback;
+        if (smsTexts.isEmpty()) {
+            deliver(handle, () -> target.onSuccess(Collections.emptyList()));
+            return handle;
+        }
+
+        List<String> texts = new ArrayList<>(smsTexts);
+        if (modelReady) {
+            if (!startBatch(texts, handle, target)) {
+                deliver(handle, () -> target.onFailure("Inference queue full, try again"));
+            }
+        } else if (!readiness.isDone()) {
+            startWhenReady(handle, target::onFailure, () -> {
+                if (!startBatch(texts, handle, target)) {
+                    deliver(handle, () -> target.onFailure("Inference queue full, try again"));
                 }
+            });
+        } else {
+            deliver(handle, () -> target.onFailure("ONNX model not loaded"));
+        }
+        return handle;
+    }
 
+    /**
+     * Queues a bulk classification. Returns false if the inference queue is full.
+     */
+    private boolean startBatch(List<String> texts, InferenceHandle handle, BatchTransactionCallback callback) {
+        boolean queued = enqueue(handle, () -> {
+            try {
+                List<ParsedTransaction> results = new ArrayList<>(texts.size());
+                int chunk = maxBatchSize;
+                for (int from = 0; from < texts.size(); from += chunk) {
+                    ensureOpen();
+                    if (handle.isStale()) {
+                        droppedRequests.incrementAndGet();
+                        return;
+                    }
+                    int to = Math.min(from + chunk, texts.size());
+                    results.addAll(runBatchCached(texts.subList(from, to)));
+                }
+                deliver(handle, () -> callback.onSuccess(results));
             } catch (Exception e) {
-                Log.e(TAG, "ONNX inference error", e);
-                callback.onFailure("Inference failed: " + e.getMessage());
+                Log.e(TAG, "ONNX batch inference error", e);
+                deliver(handle, () -> callback.onFailure("Batch inference failed: " + e.getMessage()));
             }
         });
+        if (!queued) {
+            Log.w(TAG, "Inference queue full, rejecting batch");
+        }
+        return queued;
     }
 
     /**
-     * Preprocess SMS text into a float vector of the required size.
-     * Pads with 0.0f if shorter than required size.
+     * Results for a batch, serving repeated texts from the result cache and known
+     * templates from the template cache, and running only the rest through the model.
      */
-    private float[] preprocessSmsText(String sms, int targetSize) {
-        if (sms == null) {
-            sms = "";
+    private List<ParsedTransaction> runBatchCached(List<String> texts) throws OrtException {
+        int n = texts.size();
+        List<ParsedTransaction> results = new ArrayList<>(Collections.nCopies(n, (ParsedTransaction) null));
+        List<String> misses = new ArrayList<>();
+        List<Integer> missIndices = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String sms = texts.get(i);
+            if (isFilteredOut(sms)) {
+                results.set(i, ParsedTransaction.NONE);
+                continue;
+            }
+            ParsedTransaction cached = resultCache.get(sms);
+            if (cached != null) {
+                results.set(i, cached);
+                continue;
+            }
+            misses.add(sms);
+            missIndices.add(i);
         }
-        
-        // Convert SMS to lowercase for consistent processing
-        String normalized = sms.toLowerCase().trim();
-        
-        // Convert characters to float values (simple character encoding)
-        // Each character is encoded as its ASCII value normalized to [0, 1]
-        float[] features = new float[targetSize];
-        int smsLength = normalized.length();
-        
-        for (int i = 0; i < targetSize; i++) {
-            if (i < smsLength) {
-                char c = normalized.charAt(i);
-                // Normalize ASCII value to [0, 1] range
-                features[i] = (float) c / 128.0f;
+        if (!misses.isEmpty()) {
+            List<ParsedTransaction> computed = runBatchUncached(misses);
+            for (int m = 0; m < computed.size(); m++) {
+                results.set(missIndices.get(m), computed.get(m));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Results for texts that already passed the prefilter and missed the result cache, as
+     * micro-batched requests have in startAnalysis: known templates come from the template cache,
+     * the rest go through the cascade and the model. Every result is put in the result cache.
+     */
+    private List<ParsedTransaction> runBatchUncached(List<String> texts) throws OrtException {
+        int n = texts.size();
+        List<ParsedTransaction> results = new ArrayList<>(Collections.nCopies(n, (ParsedTransaction) null));
+        List<String> modelTexts = new ArrayList<>();
+        List<String> modelSkeletons = new ArrayList<>();
+        List<Integer> modelIndices = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String sms = texts.get(i);
+            String skeleton = TemplateCanonicalizer.skeleton(sms);
+            TransactionType type = templateCache.get(skeleton);
+            if (type != null) {
+                ParsedTransaction result = resultForType(type, sms);
+                resultCache.put(sms, result);
+                results.set(i, result);
+                continue;
+            }
+            Classification early = cascade != null ? cascade.classifyFirst(sms) : null;
+            if (early != null) {
+                ParsedTransaction result = decide(early, sms);
+                rememberTemplate(skeleton, result);
+                resultCache.put(sms, result);
+                results.set(i, result);
             } else {
-                // Pad with zeros
-                features[i] = 0.0f;
+                modelTexts.add(sms);
+                modelSkeletons.add(skeleton);
+                modelIndices.add(i);
             }
         }
-        
-        return features;
+        if (!modelTexts.isEmpty()) {
+            List<Classification> scores = runBatch(modelTexts);
+            for (int m = 0; m < scores.size(); m++) {
+                ParsedTransaction result = decide(scores.get(m), modelTexts.get(m));
+                rememberTemplate(modelSkeletons.get(m), result);
+                resultCache.put(modelTexts.get(m), result);
+                results.set(modelIndices.get(m), result);
+            }
+        }
+        return results;
     }
 
     /**
-     * Parse model output to extract type, amount, description.
+     * Packs texts into one [N, length] tensor per length bucket, runs once per bucket and splits
+     * the [N, C] output. Falls back to one run per message if the model has a fixed batch axis.
+     * Must be called on the inference executor.
      */
-    private ModelOutput parseModelOutput(OrtSession.Result result, String smsText) throws OrtException {
-        ModelOutput output = new ModelOutput();
-        
+    private List<Classification> runBatch(List<String> texts) throws OrtException {
+        if (session == null || inputVectorSize <= 0) {
+            throw new IllegalStateException("Model sessions not initialized");
+        }
+        int n = texts.size();
+        List<Classification> outputs = new ArrayList<>(Collections.nCopies(n, (Classification) null));
+        if (!dynamicBatch) {
+            for (int i = 0; i < n; i++) {
+                outputs.set(i, scoreSingle(texts.get(i)));
+            }
+            return outputs;
+        }
+
+        InferenceMetrics stages = stageMetrics();
+        int[] bucketOf = new int[n];
+        int[] bucketCounts = new int[lengthBuckets.length];
+        for (int i = 0; i < n; i++) {
+            bucketOf[i] = bucketFor(SmsFeaturizer.encodedLength(texts.get(i)));
+            bucketCounts[bucketOf[i]]++;
+        }
+
+        InferenceBuffers buffers = buffersForCurrentThread();
+        for (int bucket = 0; bucket < lengthBuckets.length; bucket++) {
+            int rows = bucketCounts[bucket];
+            if (rows == 0) {
+                continue;
+            }
+            ensureOpen();
+            int length = lengthBuckets[bucket];
+            long t = stages != null ? System.nanoTime() : 0;
+            int[] rowToText = new int[rows];
+            FloatBuffer packed = buffers.beginBatch(rows, length);
+            for (int i = 0, row = 0; i < n; i++) {
+                if (bucketOf[i] == bucket) {
+                    rowToText[row++] = i;
+                    SmsFeaturizer.encode(texts.get(i), packed, length);
+                }
+            }
+            if (stages != null) {
+                t = stages.record(InferenceMetrics.Stage.PREPROCESS, t);
+            }
+
+            try (OnnxTensor inputTensor = buffers.createBatchTensor(rows, length)) {
+                Map<String, OnnxTensor> inputs = Collections.singletonMap(buffers.inputName(), inputTensor);
+                if (buffers.hasPinnedOutput()) {
+                    try (OnnxTensor outputTensor = buffers.createBatchOutputTensor(rows)) {
+                        if (stages != null) {
+                            t = stages.record(InferenceMetrics.Stage.TENSOR_CREATE, t);
+                        }
+                        try (OrtSession.Result result = session.run(inputs,
+                                Collections.singletonMap(buffers.outputName(), outputTensor))) {
+                            if (stages != null) {
+                                t = stages.record(InferenceMetrics.Stage.SESSION_RUN, t);
+                            }
+                            FloatBuffer scores = buffers.batchOutput();
+                            for (int row = 0; row < rows; row++) {
+                                outputs.set(rowToText[row], decodeScores(scores, row * outputClasses, outputClasses));
+                            }
+                        }
+                    }
+                } else {
+                    if (stages != null) {
+                        t = stages.record(InferenceMetrics.Stage.TENSOR_CREATE, t);
+                    }
+                    try (OrtSession.Result result = session.run(inputs)) {
+                        if (stages != null) {
+                            t = stages.record(InferenceMetrics.Stage.SESSION_RUN, t);
+                        }
+                        decodeBatchResult(result, rows, rowToText, outputs);
+                    }
+                }
+                if (stages != null) {
+                    stages.record(InferenceMetrics.Stage.PARSE_OUTPUT, t);
+                }
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * Input buffers owned by the calling thread, created on first use and reused afterwards.
+     */
+    private InferenceBuffers buffersForCurrentThread() throws OrtException {
+        InferenceBuffers buffers = threadBuffers.get();
+        if (buffers == null) {
+            buffers = new InferenceBuffers(env, inputName, lengthBuckets,
+                    outputClasses > 0 ? outputName : null, outputClasses);
+            threadBuffers.set(buffers);
+            allBuffers.add(buffers);
+        }
+        return buffers;
+    }
+
+    /**
+     * Frees the calling thread's buffers when an inference thread ends, so threads replaced after
+     * an idle timeout don't leave native memory behind.
+     */
+    private void releaseThreadBuffers() {
+        InferenceBuffers buffers = threadBuffers.get();
+        threadBuffers.remove();
+        // Whoever removes the buffers from the set closes them, so shutdown never closes them twice
+        if (buffers != null && allBuffers.remove(buffers)) {
+            buffers.close();
+        }
+    }
+
+    /**
+     * Parse model output into a type and its confidence.
+     * Float tensors are read from the tensor's buffer; other formats go through getValue().
+     */
+    private Classification parseModelOutput(OrtSession.Result result) throws OrtException {
         // Get first output (most common case)
-        Object outputValue = result.get(0).getValue();
+        OnnxValue value = result.get(0);
+        if (value instanceof OnnxTensor && ((OnnxTensor) value).getInfo().type == OnnxJavaType.FLOAT) {
+            FloatBuffer probabilities = ((OnnxTensor) value).getFloatBuffer();
+            return decodeScores(probabilities, 0, probabilities.remaining());
+        }
         
         // Handle different output formats
-        float[] probabilities = extractProbabilitiesFromResult(outputValue);
-        
-        if (probabilities.length == 0) {
+        float[] probabilities = extractProbabilitiesFromResult(value.getValue());
+        return decodeScores(FloatBuffer.wrap(probabilities), 0, probabilities.length);
+    }
+
+    /**
+     * Batched counterpart of parseModelOutput for outputs ORT allocated itself.
+     */
+    private void decodeBatchResult(OrtSession.Result result, int rows, int[] rowToText,
+                                   List<Classification> outputs) throws OrtException {
+        OnnxValue value = result.get(0);
+        if (value instanceof OnnxTensor && ((OnnxTensor) value).getInfo().type == OnnxJavaType.FLOAT) {
+            FloatBuffer scores = ((OnnxTensor) value).getFloatBuffer();
+            int classes = scores.remaining() / rows;
+            for (int row = 0; row < rows; row++) {
+                outputs.set(rowToText[row], decodeScores(scores, row * classes, classes));
+            }
+            return;
+        }
+        float[][] probabilities = extractProbabilityRows(value.getValue(), rows);
+        for (int row = 0; row < rows; row++) {
+            outputs.set(rowToText[row], decodeScores(FloatBuffer.wrap(probabilities[row]), 0, probabilities[row].length));
+        }
+    }
+
+    /**
+     * Map one row of class probabilities to a type and its probability.
+     * Reads count scores starting at offset with absolute gets, so the buffer is not copied.
+     */
+    private Classification decodeScores(FloatBuffer probabilities, int offset, int count) {
+        if (count <= 0) {
             Log.w(TAG, "Empty model output");
-            return output; // All nulls
+            return EMPTY_OUTPUT;
         }
         
         // Find max probability and its index
-        int maxIdx = argMax(probabilities);
-        float maxProb = probabilities[maxIdx];
-        
-        // Check confidence threshold
-        if (maxProb < CONFIDENCE_THRESHOLD) {
-            Log.d(TAG, "Low confidence: " + maxProb + " < " + CONFIDENCE_THRESHOLD);
-            return output; // All nulls due to low confidence
+        int maxIdx = 0;
+        float maxProb = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            float p = probabilities.get(offset + i);
+            if (p > maxProb) {
+                maxProb = p;
+                maxIdx = i;
+            }
         }
         
         // Map index to type
         // Assuming: 0 = debit, 1 = credit, 2 = none/other
+        TransactionType type;
         if (maxIdx == 0) {
-            output.type = "debit";
+            type = TransactionType.DEBIT;
         } else if (maxIdx == 1) {
-            output.type = "credit";
+            type = TransactionType.CREDIT;
         } else {
             // Index 2 or higher = none/unknown
-            output.type = null;
-            return output; // Return nulls if type not detected
+            type = TransactionType.NONE;
         }
-        
-        // Extract amount and description from SMS text using heuristics
-        // (Model might only output type probabilities)
-        output.amount = extractAmountHeuristic(smsText);
-        output.description = extractDescriptionHeuristic(smsText);
-        
-        return output;
+        return new Classification(type, maxProb);
     }
 
     /**
-     * Build JSON response from model output.
+     * Applies the shared confidence threshold, then fills in the heuristics for transactions.
      */
-    private String buildJsonResponse(ModelOutput output) {
-        StringBuilder json = new StringBuilder("{");
-        
-        // Type
-        json.append("\"type\":");
-        if (output.type == null) {
-            json.append("null");
-        } else {
-            json.append("\"").append(escapeJson(output.type)).append("\"");
+    private ParsedTransaction decide(Classification classification, String smsText) {
+        TransactionType type = classification.typeAt(config.confidenceThreshold);
+        if (type == TransactionType.UNKNOWN) {
+            Log.d(TAG, "Low confidence: " + classification.getConfidence() + " < " + config.confidenceThreshold);
+            if (metrics != null) {
+                metrics.countLowConfidence();
+            }
         }
-        
-        // Amount
-        json.append(",\"amount\":");
-        if (output.amount == null) {
-            json.append("null");
-        } else {
-            json.append(output.amount);
+        return resultForType(type, smsText);
+    }
+
+    /**
+     * Result for a known type: heuristics fill amount and description for transactions.
+     */
+    private ParsedTransaction resultForType(TransactionType type, String smsText) {
+        if (!type.isTransaction()) {
+            return type == TransactionType.NONE ? ParsedTransaction.NONE : ParsedTransaction.UNKNOWN;
         }
         
-        // Description
-        json.append(",\"description\":");
-        if (output.description == null) {
-            json.append("null");
-        } else {
-            json.append("\"").append(escapeJson(output.description)).append("\"");
+        // Extract amount and description from SMS text using heuristics
+        // (Model might only output type probabilities)
+        // All recognized currency markers (Rs, INR, ₹) are rupees
+        long start = metrics != null ? System.nanoTime() : 0;
+        long amountMinor = AmountScanner.scanMinorUnits(smsText);
+        String description = DescriptionScanner.extract(smsText);
+        if (metrics != null) {
+            metrics.record(InferenceMetrics.Stage.HEURISTICS, start);
         }
-        
-        json.append("}");
-        return json.toString();
+        return new ParsedTransaction(type, amountMinor, Money.INR, description);
     }
 
     /**
@@ -369,126 +1460,178 @@ public class GenerativeModelHelper {
         }
     }
 
-    private int argMax(float[] arr) {
-        if (arr.length == 0) return -1;
-        int idx = 0;
-        float max = Float.NEGATIVE_INFINITY;
-        for (int i = 0; i < arr.length; i++) {
-            if (arr[i] > max) {
-                max = arr[i];
-                idx = i;
+    /**
+     * Split a batched [N, C] output into N probability rows.
+     */
+    private float[][] extractProbabilityRows(Object outputValue, int n) {
+        float[][] rows = new float[n][];
+        if (outputValue instanceof float[][] && ((float[][]) outputValue).length == n) {
+            float[][] arr = (float[][]) outputValue;
+            System.arraycopy(arr, 0, rows, 0, n);
+        } else if (outputValue instanceof double[][] && ((double[][]) outputValue).length == n) {
+            double[][] arr = (double[][]) outputValue;
+            for (int i = 0; i < n; i++) {
+                rows[i] = new float[arr[i].length];
+                for (int j = 0; j < arr[i].length; j++) {
+                    rows[i][j] = (float) arr[i][j];
+                }
+            }
+        } else if (outputValue instanceof float[] && n == 1) {
+            rows[0] = (float[]) outputValue;
+        } else {
+            Log.w(TAG, "Unexpected batch output for " + n + " rows: " + outputValue.getClass().getName());
+            for (int i = 0; i < n; i++) {
+                rows[i] = new float[0];
             }
         }
-        return idx;
+        return rows;
     }
 
-    private String escapeJson(String s) {
-        if (s == null) return "";
-        return s.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+    public boolean isModelReady() {
+        return modelReady;
     }
 
     /**
-     * Extract amount from SMS text using heuristics.
+     * Hit/miss/eviction counters of the result cache, for sizing it.
      */
-    private Double extractAmountHeuristic(String sms) {
-        if (sms == null || sms.isEmpty()) {
-            return null;
-        }
-        
-        // Remove commas and find first number-like substring with optional decimal
-        String cleaned = sms.replaceAll(",", "");
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("(\\d+\\.?\\d{0,2})");
-        java.util.regex.Matcher matcher = pattern.matcher(cleaned);
-        
-        if (matcher.find()) {
-            try {
-                return Double.parseDouble(matcher.group(1));
-            } catch (NumberFormatException e) {
-                Log.w(TAG, "Failed to parse amount: " + matcher.group(1));
-            }
-        }
-        
-        return null;
+    public ResultCache.Stats getResultCacheStats() {
+        return resultCache.stats();
+    }
+
+    public void clearResultCache() {
+        resultCache.clear();
     }
 
     /**
-     * Extract description from SMS text using heuristics.
+     * Template cache counters; hits are messages classified without running the model.
      */
-    private String extractDescriptionHeuristic(String sms) {
-        if (sms == null || sms.isEmpty()) {
-            return null;
-        }
-        
-        String lower = sms.toLowerCase();
-        
-        // Try to extract text after "to"
-        if (lower.contains(" to ")) {
-            int idx = lower.indexOf(" to ");
-            String desc = sms.substring(idx + 4).trim();
-            // Remove amount if present
-            desc = desc.replaceAll("\\d+\\.?\\d*", "").trim();
-            if (!desc.isEmpty()) {
-                return desc.length() > 50 ? desc.substring(0, 50) : desc;
-            }
-        }
-        
-        // Try to extract text before "via"
-        if (lower.contains(" via ")) {
-            int idx = lower.indexOf(" via ");
-            String desc = sms.substring(0, idx).trim();
-            if (!desc.isEmpty()) {
-                return desc.length() > 50 ? desc.substring(0, 50) : desc;
-            }
-        }
-        
-        // Fallback: return first meaningful part
-        String trimmed = sms.trim();
-        // Remove common prefixes
-        trimmed = trimmed.replaceFirst("(?i)^.*?(?:debited|credited|received|spent)\\s*", "");
-        trimmed = trimmed.trim();
-        
-        if (trimmed.length() > 50) {
-            trimmed = trimmed.substring(0, 50);
-        }
-        
-        return trimmed.isEmpty() ? null : trimmed;
+    public ResultCache.Stats getTemplateCacheStats() {
+        return templateCache.stats();
+    }
+
+    /**
+     * Messages answered as non-transactions by the keyword prefilter without running the model.
+     */
+    public long getPrefilterRejectionCount() {
+        return prefilterRejections.get();
+    }
+
+    /**
+     * Per-stage latency histograms and request counters, or null unless enabled with
+     * {@link InferenceConfig.Builder#setMetricsEnabled}.
+     */
+    public InferenceMetrics.Snapshot getMetricsSnapshot() {
+        return metrics != null ? metrics.snapshot() : null;
+    }
+
+    /**
+     * Requests dropped without running because they were cancelled or missed their deadline.
+     */
+    public long getDroppedRequestCount() {
+        return droppedRequests.get();
+    }
+
+    /**
+     * Messages decided by the keyword rules of the cascade without running the model.
+     */
+    public long getRuleDecisionCount() {
+        return cascade != null ? cascade.getDecidedFirstCount() : 0;
+    }
+
+    /**
+     * Asset this helper loads, which tells the packaged {@link ModelVariant} in use.
+     */
+    public String getModelAsset() {
+        return modelAsset;
+    }
+
+    /**
+     * SHA-256 of the loaded model file, or null before the model has loaded.
+     */
+    public String getModelHash() {
+        return modelHash;
+    }
+
+    /**
+     * Wall time of the warm-up that ran after the last model load, or -1.
+     */
+    public long getWarmupMillis() {
+        return warmupMillis;
     }
 
     /**
-     * Internal class to hold model output.
+     * Whether the loaded model accepts [N, length] inputs. When false, batches and micro-batches
+     * run one message at a time and only save dispatch overhead.
      */
-    private static class ModelOutput {
-        String type = null;
-        Double amount = null;
-        String description = null;
+    public boolean supportsBatching() {
+        return modelReady && dynamicBatch;
     }
 
-    public void warmup() {
-        // Optional: Run a dummy inference to warm up the model
-        if (modelReady && inputVectorSize > 0) {
+    /**
+     * Provider the session runs on, or null before the model has loaded.
+     */
+    public ExecutionProvider getExecutionProvider() {
+        return executionProvider;
+    }
+
+    /**
+     * Wall time of the last model load (mapping, session creation, shape detection, provider calibration), or -1.
+     */
+    public long getModelLoadMillis() {
+        return modelLoadMillis;
+    }
+
+    /**
+     * Stops the inference threads and releases the session once in-flight work has finished.
+     * Queued requests are dropped. Running batches and a load in progress stop before their next
+     * session.run, and the session is only closed once every inference thread has exited.
+     */
+    public void shutdown() {
+        closed = true;
+        modelReady = false;
+        // Fails requests and status callbacks still waiting for a load that will not be used
+        readiness.completeExceptionally(new IllegalStateException("Model helper shut down"));
+        disableMicroBatching();
+        inferenceExecutor.shutdownNow();
+        new Thread(() -> {
             try {
-                float[] dummy = new float[inputVectorSize];
-                long[] shape = new long[]{1, inputVectorSize};
-                FloatBuffer fb = FloatBuffer.wrap(dummy);
-                Set<String> inputNames = session.getInputNames();
-                if (!inputNames.isEmpty()) {
-                    String inputName = inputNames.iterator().next();
-                    try (OnnxTensor tensor = OnnxTensor.createTensor(env, fb, shape);
-                         OrtSession.Result result = session.run(java.util.Collections.singletonMap(inputName, tensor))) {
-                        Log.d(TAG, "Model warmed up");
-                    }
+                // Closing under a running session.run or session creation is a native use-after-free,
+                // so wait for the load and every run to end, however long that takes
+                while (!inferenceExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    Log.w(TAG, "Waiting for in-flight inference before closing the session");
                 }
-            } catch (Exception e) {
-                Log.w(TAG, "Warmup failed", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Log.w(TAG, "Shutdown interrupted, leaving the session open");
+                return;
             }
+            closeResources();
+        }, "onnx-shutdown").start();
+    }
+
+    /**
+     * Throws once shutdown has started, so work in flight stops before its next session.run.
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Model helper shut down");
         }
     }
 
-    public boolean isModelReady() {
-        return modelReady;
+    private void closeResources() {
+        for (InferenceBuffers buffers : allBuffers) {
+            if (allBuffers.remove(buffers)) {
+                buffers.close();
+            }
+        }
+        if (session != null) {
+            try {
+                session.close();
+            } catch (OrtException e) {
+                Log.w(TAG, "Failed to close session", e);
+            }
+            session = null;
+        }
+        modelBuffer = null;
     }
 }
@@ -0,0 +1,171 @@
+package com.example.expensetracker;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.Map;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+
+/**
+ * Per-thread, native-backed input memory for the inference hot path.
+ * Each length bucket has a direct buffer wrapped once in a [1, length] tensor, so ORT reads
+ * features in place and the tensor and input map are reused for every run on the owning thread.
+ * When the output width is known, outputs are pinned the same way so ORT writes class scores
+ * straight into a direct buffer that is decoded in place.
+ *
+ * This removes the per-run input and output garbage only. A request still allocates its
+ * Classification and result, its cache keys (the boxed text hash and the template skeleton)
+ * and its queued task and callback lambdas.
+ */
+final class InferenceBuffers implements AutoCloseable {
+    private final OrtEnvironment env;
+    private final String inputName;
+    private final int[] lengthBuckets;
+    private final FloatBuffer[] inputs;
+    private final OnnxTensor[] inputTensors;
+    private final Map<String, OnnxTensor>[] inputMaps;
+    private final String outputName;
+    private final int outputClasses;
+    private final FloatBuffer output;
+    private final OnnxTensor outputTensor;
+    private final Map<String, OnnxTensor> outputMap;
+    private FloatBuffer batchInput;
+    private FloatBuffer batchOutput;
+
+    /**
+     * @param outputName output to pin, or null to let ORT allocate outputs
+     * @param outputClasses width of the [N, C] output; ignored when outputName is null
+     */
+    @SuppressWarnings("unchecked")
+    InferenceBuffers(OrtEnvironment env, String inputName, int[] lengthBuckets,
+                     String outputName, int outputClasses) throws OrtException {
+        this.env = env;
+        this.inputName = inputName;
+        this.lengthBuckets = lengthBuckets.clone();
+        this.inputs = new FloatBuffer[lengthBuckets.length];
+        this.inputTensors = new OnnxTensor[lengthBuckets.length];
+        this.inputMaps = new Map[lengthBuckets.length];
+        for (int i = 0; i < lengthBuckets.length; i++) {
+            inputs[i] = allocateDirect(lengthBuckets[i]);
+            inputTensors[i] = OnnxTensor.createTensor(env, inputs[i], new long[]{1, lengthBuckets[i]});
+            inputMaps[i] = Collections.singletonMap(inputName, inputTensors[i]);
+        }
+        this.outputName = outputName;
+        this.outputClasses = outputClasses;
+        if (outputName != null) {
+            output = allocateDirect(outputClasses);
+            outputTensor = OnnxTensor.createTensor(env, output, new long[]{1, outputClasses});
+            outputMap = Collections.singletonMap(outputName, outputTensor);
+        } else {
+            output = null;
+            outputTensor = null;
+            outputMap = null;
+        }
+    }
+
+    boolean hasPinnedOutput() {
+        return outputName != null;
+    }
+
+    /**
+     * Pinned [1, C] output for session.run(inputs, pinnedOutputs); same for every bucket.
+     */
+    Map<String, OnnxTensor> singleOutputs() {
+        return outputMap;
+    }
+
+    /**
+     * Class scores written by the last single-message run, read with absolute gets.
+     */
+    FloatBuffer singleOutput() {
+        return output;
+    }
+
+    /**
+     * Pinned [rows, C] output over a growable direct buffer; the caller closes the tensor.
+     */
+    OnnxTensor createBatchOutputTensor(int rows) throws OrtException {
+        int needed = rows * outputClasses;
+        if (batchOutput == null || batchOutput.capacity() < needed) {
+            batchOutput = allocateDirect(needed);
+        }
+        FloatBuffer view = batchOutput.duplicate();
+        view.position(0);
+        view.limit(needed);
+        return OnnxTensor.createTensor(env, view, new long[]{rows, outputClasses});
+    }
+
+    /**
+     * Class scores written by the last batched run; row r starts at r * C.
+     */
+    FloatBuffer batchOutput() {
+        return batchOutput;
+    }
+
+    String outputName() {
+        return outputName;
+    }
+
+    /**
+     * Clears the single-message buffer of a bucket for the featurizer to fill.
+     */
+    FloatBuffer beginSingle(int bucket) {
+        FloatBuffer input = inputs[bucket];
+        input.clear();
+        return input;
+    }
+
+    /**
+     * Input map for session.run over the bucket's single-message tensor.
+     */
+    Map<String, OnnxTensor> singleInputs(int bucket) {
+        return inputMaps[bucket];
+    }
+
+    /**
+     * Returns a cleared direct buffer holding at least rows * length floats.
+     * Grown on demand and reused afterwards.
+     */
+    FloatBuffer beginBatch(int rows, int length) {
+        int needed = rows * length;
+        if (batchInput == null || batchInput.capacity() < needed) {
+            batchInput = allocateDirect(needed);
+        }
+        batchInput.clear();
+        return batchInput;
+    }
+
+    /**
+     * Wraps the first rows of the batch buffer in a [rows, length] tensor without copying.
+     */
+    OnnxTensor createBatchTensor(int rows, int length) throws OrtException {
+        FloatBuffer view = batchInput.duplicate();
+        view.position(0);
+        view.limit(rows * length);
+        return OnnxTensor.createTensor(env, view, new long[]{rows, length});
+    }
+
+    String inputName() {
+        return inputName;
+    }
+
+    private static FloatBuffer allocateDirect(int floats) {
+        return ByteBuffer.allocateDirect(floats * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+
+    @Override
+    public void close() {
+        for (OnnxTensor tensor : inputTensors) {
+            tensor.close();
+        }
+        if (outputTensor != null) {
+            outputTensor.close();
+        }
+    }
+}
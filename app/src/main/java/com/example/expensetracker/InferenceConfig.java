@@ -0,0 +1,267 @@
+package com.example.expensetracker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * Threading and ONNX Runtime session settings for {@link GenerativeModelHelper}.
+ * Build with {@link Builder}; unset values keep ONNX Runtime's defaults.
+ */
+public final class InferenceConfig {
+    final int inferenceThreads;
+    final int queueCapacity;
+    final int intraOpThreads;
+    final int interOpThreads;
+    final OrtSession.SessionOptions.OptLevel optimizationLevel;
+    final OrtSession.SessionOptions.ExecutionMode executionMode;
+    final boolean cacheOptimizedModel;
+    final int resultCacheSize;
+    final long resultCacheTtlMillis;
+    final int templateCacheSize;
+    final boolean prefilterEnabled;
+    final float confidenceThreshold;
+    final boolean ruleCascadeEnabled;
+    final ModelVariant modelVariant; // Null picks by device tier
+    final ExecutionProvider executionProvider; // Null picks the faster one by calibration
+    final boolean metricsEnabled;
+
+    private InferenceConfig(Builder builder) {
+        this.inferenceThreads = builder.inferenceThreads;
+        this.queueCapacity = builder.queueCapacity;
+        this.intraOpThreads = builder.intraOpThreads;
+        this.interOpThreads = builder.interOpThreads;
+        this.optimizationLevel = builder.optimizationLevel;
+        this.executionMode = builder.executionMode;
+        this.cacheOptimizedModel = builder.cacheOptimizedModel;
+        this.resultCacheSize = builder.resultCacheSize;
+        this.resultCacheTtlMillis = builder.resultCacheTtlMillis;
+        this.templateCacheSize = builder.templateCacheSize;
+        this.prefilterEnabled = builder.prefilterEnabled;
+        this.confidenceThreshold = builder.confidenceThreshold;
+        this.ruleCascadeEnabled = builder.ruleCascadeEnabled;
+        this.modelVariant = builder.modelVariant;
+        this.executionProvider = builder.executionProvider;
+        this.metricsEnabled = builder.metricsEnabled;
+    }
+
+    public static InferenceConfig defaults() {
+        return new Builder().build();
+    }
+
+    /**
+     * Session options for this config on the default CPU provider. When loading an already optimized
+     * model, graph optimization is disabled since it was applied when the cached model was written.
+     */
+    OrtSession.SessionOptions createSessionOptions(boolean preOptimized) throws OrtException {
+        return createSessionOptions(preOptimized, ExecutionProvider.CPU);
+    }
+
+    /**
+     * Session options running on the given provider. XNNPACK brings its own thread pool, so ORT's
+     * intra-op pool is reduced to one non-spinning thread and the configured count goes to XNNPACK.
+     * Throws if the provider cannot be registered.
+     */
+    OrtSession.SessionOptions createSessionOptions(boolean preOptimized, ExecutionProvider provider)
+            throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        try {
+            if (provider == ExecutionProvider.XNNPACK) {
+                Map<String, String> xnnpackOptions = new HashMap<>();
+                if (intraOpThreads > 0) {
+                    xnnpackOptions.put("intra_op_num_threads", String.valueOf(intraOpThreads));
+                }
+                options.setIntraOpNumThreads(1);
+                options.addConfigEntry("session.intra_op.allow_spinning", "0");
+                options.addXnnpack(xnnpackOptions);
+            } else if (intraOpThreads > 0) {
+                options.setIntraOpNumThreads(intraOpThreads);
+            }
+            if (interOpThreads > 0) {
+                options.setInterOpNumThreads(interOpThreads);
+            }
+            options.setOptimizationLevel(preOptimized ? OrtSession.SessionOptions.OptLevel.NO_OPT : optimizationLevel);
+            options.setExecutionMode(executionMode);
+            return options;
+        } catch (OrtException e) {
+            options.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Configs are equal when every setting is, so helpers can be shared per config.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InferenceConfig)) return false;
+        InferenceConfig other = (InferenceConfig) o;
+        return inferenceThreads == other.inferenceThreads
+                && queueCapacity == other.queueCapacity
+                && intraOpThreads == other.intraOpThreads
+                && interOpThreads == other.interOpThreads
+                && optimizationLevel == other.optimizationLevel
+                && executionMode == other.executionMode
+                && cacheOptimizedModel == other.cacheOptimizedModel
+                && resultCacheSize == other.resultCacheSize
+                && resultCacheTtlMillis == other.resultCacheTtlMillis
+                && templateCacheSize == other.templateCacheSize
+                && prefilterEnabled == other.prefilterEnabled
+                && Float.compare(confidenceThreshold, other.confidenceThreshold) == 0
+                && ruleCascadeEnabled == other.ruleCascadeEnabled
+                && modelVariant == other.modelVariant
+                && executionProvider == other.executionProvider
+                && metricsEnabled == other.metricsEnabled;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(inferenceThreads, queueCapacity, intraOpThreads, interOpThreads, optimizationLevel,
+                executionMode, cacheOptimizedModel, resultCacheSize, resultCacheTtlMillis, templateCacheSize,
+                prefilterEnabled, confidenceThreshold, ruleCascadeEnabled, modelVariant, executionProvider,
+                metricsEnabled);
+    }
+
+    public static final class Builder {
+        private int inferenceThreads = GenerativeModelHelper.DEFAULT_INFERENCE_THREADS;
+        private int queueCapacity = GenerativeModelHelper.DEFAULT_INFERENCE_QUEUE_CAPACITY;
+        private int intraOpThreads = 0; // 0 = ORT default
+        private int interOpThreads = 0; // 0 = ORT default
+        private OrtSession.SessionOptions.OptLevel optimizationLevel = OrtSession.SessionOptions.OptLevel.ALL_OPT;
+        private OrtSession.SessionOptions.ExecutionMode executionMode = OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL;
+        private boolean cacheOptimizedModel = true;
+        private int resultCacheSize = 256;
+        private long resultCacheTtlMillis = 10 * 60 * 1000L;
+        private int templateCacheSize = 512;
+        private boolean prefilterEnabled = true;
+        private float confidenceThreshold = SmsClassifier.DEFAULT_CONFIDENCE_THRESHOLD;
+        private boolean ruleCascadeEnabled = false; // Rule confidences are not calibrated yet
+        private ModelVariant modelVariant = null;
+        private ExecutionProvider executionProvider = null;
+        private boolean metricsEnabled = false;
+
+        /** Threads running preprocessing and session.run. */
+        public Builder setInferenceThreads(int inferenceThreads) {
+            if (inferenceThreads <= 0) {
+                throw new IllegalArgumentException("inferenceThreads must be > 0");
+            }
+            this.inferenceThreads = inferenceThreads;
+            return this;
+        }
+
+        /** Max requests waiting for an inference thread; extra requests are rejected. */
+        public Builder setQueueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("queueCapacity must be > 0");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder setIntraOpThreads(int intraOpThreads) {
+            this.intraOpThreads = intraOpThreads;
+            return this;
+        }
+
+        public Builder setInterOpThreads(int interOpThreads) {
+            this.interOpThreads = interOpThreads;
+            return this;
+        }
+
+        public Builder setOptimizationLevel(OrtSession.SessionOptions.OptLevel optimizationLevel) {
+            this.optimizationLevel = optimizationLevel;
+            return this;
+        }
+
+        public Builder setExecutionMode(OrtSession.SessionOptions.ExecutionMode executionMode) {
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        /** Persist the optimized graph to app storage so later cold starts skip optimization. */
+        public Builder setCacheOptimizedModel(boolean cacheOptimizedModel) {
+            this.cacheOptimizedModel = cacheOptimizedModel;
+            return this;
+        }
+
+        /** Max analysis results kept for repeated SMS texts; 0 disables the cache. */
+        public Builder setResultCacheSize(int resultCacheSize) {
+            if (resultCacheSize < 0) {
+                throw new IllegalArgumentException("resultCacheSize must be >= 0");
+            }
+            this.resultCacheSize = resultCacheSize;
+            return this;
+        }
+
+        /** How long a cached result stays valid; 0 keeps results until evicted. */
+        public Builder setResultCacheTtlMillis(long resultCacheTtlMillis) {
+            if (resultCacheTtlMillis < 0) {
+                throw new IllegalArgumentException("resultCacheTtlMillis must be >= 0");
+            }
+            this.resultCacheTtlMillis = resultCacheTtlMillis;
+            return this;
+        }
+
+        /** Max SMS templates whose type decision is remembered; 0 always runs the model. */
+        public Builder setTemplateCacheSize(int templateCacheSize) {
+            if (templateCacheSize < 0) {
+                throw new IllegalArgumentException("templateCacheSize must be >= 0");
+            }
+            this.templateCacheSize = templateCacheSize;
+            return this;
+        }
+
+        /** Answer messages without transaction keywords (OTPs, promos) as non-transactions without the model. */
+        public Builder setPrefilterEnabled(boolean prefilterEnabled) {
+            this.prefilterEnabled = prefilterEnabled;
+            return this;
+        }
+
+        /** Below this confidence a message is reported as UNKNOWN; see {@link ClassifierEvaluation#calibrate}. */
+        public Builder setConfidenceThreshold(float confidenceThreshold) {
+            if (!(confidenceThreshold >= 0f && confidenceThreshold <= 1f)) {
+                throw new IllegalArgumentException("confidenceThreshold must be in [0, 1]");
+            }
+            this.confidenceThreshold = confidenceThreshold;
+            return this;
+        }
+
+        /**
+         * Let confident keyword rules decide and run the model only for the uncertain rest.
+         * Off by default: the rule confidences are hand-picked, see {@link RuleBasedClassifier}.
+         */
+        public Builder setRuleCascadeEnabled(boolean ruleCascadeEnabled) {
+            this.ruleCascadeEnabled = ruleCascadeEnabled;
+            return this;
+        }
+
+        /** Packaged model to load; null (the default) picks INT8 on low-tier devices, see {@link ModelVariant#forDevice}. */
+        public Builder setModelVariant(ModelVariant modelVariant) {
+            this.modelVariant = modelVariant;
+            return this;
+        }
+
+        /**
+         * Provider to run the model on; null (the default) calibrates CPU against XNNPACK once per device
+         * and model and keeps the faster. An unavailable provider falls back to CPU.
+         */
+        public Builder setExecutionProvider(ExecutionProvider executionProvider) {
+            this.executionProvider = executionProvider;
+            return this;
+        }
+
+        /** Record per-stage latency histograms and counters, see {@link GenerativeModelHelper#getMetricsSnapshot}. */
+        public Builder setMetricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+            return this;
+        }
+
+        public InferenceConfig build() {
+            return new InferenceConfig(this);
+        }
+    }
+}
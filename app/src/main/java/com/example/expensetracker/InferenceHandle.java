@@ -0,0 +1,92 @@
+package com.example.expensetracker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle to one queued analysis. A request that is cancelled, or whose deadline passes before it
+ * reaches the model, is dropped without running session.run and its callback is never invoked.
+ * Thread-safe; cancel from any thread, typically in onDestroy. Also returned by
+ * {@link GenerativeModelHelper#checkAndPrepareModel} for its pending model-ready notification.
+ */
+public final class InferenceHandle {
+    static final long NO_TIMEOUT = 0;
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+    private static final int DONE = 3;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private final long deadlineNanos; // System.nanoTime() deadline; unused without a timeout
+    private final boolean hasDeadline;
+    private volatile Runnable onCancel; // Frees the request's queue slot
+
+    /**
+     * @param timeoutMillis how long the request may wait before it is dropped; {@link #NO_TIMEOUT} waits indefinitely
+     */
+    InferenceHandle(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("timeoutMillis must be >= 0");
+        }
+        this.hasDeadline = timeoutMillis != NO_TIMEOUT;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Drops the request if it has not completed yet. Returns false if its callback already ran
+     * or is about to.
+     */
+    public boolean cancel() {
+        if (!state.compareAndSet(PENDING, CANCELLED)) {
+            return false;
+        }
+        Runnable hook = onCancel;
+        if (hook != null) {
+            hook.run();
+        }
+        return true;
+    }
+
+    /** Whether the request was cancelled or dropped at its deadline. */
+    public boolean isCancelled() {
+        int s = state.get();
+        return s == CANCELLED || s == EXPIRED;
+    }
+
+    /** Whether the request ended in any way: delivered, cancelled or expired. */
+    public boolean isDone() {
+        return state.get() != PENDING;
+    }
+
+    /**
+     * Whether the request should be dropped: cancelled, or past its deadline (which expires it).
+     */
+    boolean isStale() {
+        if (state.get() != PENDING) {
+            return true;
+        }
+        if (hasDeadline && System.nanoTime() - deadlineNanos >= 0) {
+            state.compareAndSet(PENDING, EXPIRED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Claims the right to deliver the result. Call on the callback thread right before invoking
+     * the callback; false means the request was cancelled meanwhile and must stay silent.
+     */
+    boolean finish() {
+        return state.compareAndSet(PENDING, DONE);
+    }
+
+    /**
+     * Runs hook when the request is cancelled, or right away if it already is.
+     */
+    void onCancel(Runnable hook) {
+        onCancel = hook;
+        if (state.get() == CANCELLED) {
+            hook.run();
+        }
+    }
+}
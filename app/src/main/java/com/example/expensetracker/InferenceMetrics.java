@@ -0,0 +1,126 @@
+package com.example.expensetracker;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-stage latency histograms and request counters for {@link GenerativeModelHelper}.
+ * Only created when enabled in {@link InferenceConfig}; a disabled helper holds null and skips
+ * the clock reads altogether.
+ */
+public final class InferenceMetrics {
+
+    /** Where analysis time goes, in pipeline order. */
+    public enum Stage {
+        /** Waiting in the inference executor's queue, or for a micro-batch to fill and run. */
+        QUEUE_WAIT,
+        /** SMS text to float features (SmsFeaturizer). */
+        PREPROCESS,
+        /** Creating batch tensors; single requests reuse pooled tensors. */
+        TENSOR_CREATE,
+        SESSION_RUN,
+        /** Decoding model scores into a type and confidence. */
+        PARSE_OUTPUT,
+        /** Amount and description extraction for transactions. */
+        HEURISTICS,
+        /** Building the JSON response of the String API. */
+        JSON
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong lowConfidence = new AtomicLong();
+
+    InferenceMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the time since startNanos for the stage and returns now, so consecutive stages chain.
+     */
+    long record(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        record(stage, startNanos, now);
+        return now;
+    }
+
+    /**
+     * Records endNanos - startNanos for the stage, for callers that share one clock read across samples.
+     */
+    void record(Stage stage, long startNanos, long endNanos) {
+        histograms[stage.ordinal()].record(endNanos - startNanos);
+    }
+
+    void countRequests(int n) {
+        requests.addAndGet(n);
+    }
+
+    void countFailure() {
+        failures.incrementAndGet();
+    }
+
+    void countLowConfidence() {
+        lowConfidence.incrementAndGet();
+    }
+
+    public Snapshot snapshot() {
+        Map<Stage, LatencyHistogram.Snapshot> stages = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, histograms[stage.ordinal()].snapshot());
+        }
+        return new Snapshot(stages, requests.get(), failures.get(), lowConfidence.get());
+    }
+
+    /**
+     * Point-in-time copy of all metrics, for logging or a debug screen.
+     */
+    public static final class Snapshot {
+        private final Map<Stage, LatencyHistogram.Snapshot> stages;
+        private final long requests;
+        private final long failures;
+        private final long lowConfidence;
+
+        Snapshot(Map<Stage, LatencyHistogram.Snapshot> stages, long requests, long failures, long lowConfidence) {
+            this.stages = stages;
+            this.requests = requests;
+            this.failures = failures;
+            this.lowConfidence = lowConfidence;
+        }
+
+        public LatencyHistogram.Snapshot getStage(Stage stage) {
+            return stages.get(stage);
+        }
+
+        /** Messages submitted, counting each message of a batch. */
+        public long getRequestCount() {
+            return requests;
+        }
+
+        /** Failure callbacks: queue full, model not loaded, inference errors. */
+        public long getFailureCount() {
+            return failures;
+        }
+
+        /** Model or rule decisions below the confidence threshold, reported as UNKNOWN. */
+        public long getLowConfidenceCount() {
+            return lowConfidence;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                    "requests=%d failures=%d lowConfidence=%d", requests, failures, lowConfidence));
+            for (Map.Entry<Stage, LatencyHistogram.Snapshot> entry : stages.entrySet()) {
+                if (entry.getValue().getCount() > 0) {
+                    sb.append('\n').append(entry.getKey()).append(": ").append(entry.getValue());
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -17,8 +17,6 @@ import com.example.expensetracker.api.LoginResponse;
 import com.example.expensetracker.databinding.ActivityLoginBinding;
 import com.google.android.material.textfield.TextInputEditText;
 
-import org.json.JSONObject;
-
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -28,9 +26,10 @@ public class LoginActivity extends AppCompatActivity {
     private static final String TAG = "LoginActivity";
     private ActivityLoginBinding binding;
     private boolean isLoading = false;
-    private boolean isAnalyzingSms = false;
+    private InferenceHandle smsAnalysis = null; // In-flight analysis, cancelled when superseded or destroyed
     private boolean isModelReady = false;
     private GenerativeModelHelper generativeModelHelper;
+    private InferenceHandle modelStatus = null; // Pending model-ready notification, cancelled in onDestroy
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,8 +38,8 @@ public class LoginActivity extends AppCompatActivity {
             binding = ActivityLoginBinding.inflate(getLayoutInflater());
             setContentView(binding.getRoot());
             
-            // Initialize GenerativeModelHelper
-            generativeModelHelper = new GenerativeModelHelper(this);
+            // Shared GenerativeModelHelper: the model is loaded once per process
+            generativeModelHelper = ModelRegistry.acquire(this);
             initializeModel();
             
             setupViews();
@@ -50,9 +49,26 @@ public class LoginActivity extends AppCompatActivity {
         }
     }
     
+    @Override
+    protected void onDestroy() {
+        if (modelStatus != null) {
+            modelStatus.cancel();
+            modelStatus = null;
+        }
+        if (smsAnalysis != null) {
+            smsAnalysis.cancel();
+            smsAnalysis = null;
+        }
+        if (generativeModelHelper != null) {
+            ModelRegistry.release(generativeModelHelper);
+            generativeModelHelper = null;
+        }
+        super.onDestroy();
+    }
+
     private void initializeModel() {
         try {
-            generativeModelHelper.checkAndPrepareModel(new GenerativeModelHelper.ModelStatusCallback() {
+            modelStatus = generativeModelHelper.checkAndPrepareModel(new GenerativeModelHelper.ModelStatusCallback() {
                 @Override
                 public void onStatusChecked(int status) {
                     Log.d(TAG, "Model status checked: " + status);
@@ -227,18 +243,16 @@ public class LoginActivity extends AppCompatActivity {
             return;
         }
 
-        if (isAnalyzingSms) {
-            return;
-        }
-        
         // ✅ SAFE TO CALL MODEL NOW - Only call after onModelReady() fires
         if (!isModelReady || !generativeModelHelper.isModelReady()) {
             Toast.makeText(this, "AI model is not ready. Please wait.", Toast.LENGTH_LONG).show();
             return;
         }
 
-        isAnalyzingSms = true;
-        binding.analyzeSmsButton.setEnabled(false);
+        // A new analysis supersedes one still in flight; the old one never calls back
+        if (smsAnalysis != null) {
+            smsAnalysis.cancel();
+        }
         binding.aiProgressBar.setVisibility(View.VISIBLE);
         binding.resultsCard.setVisibility(View.GONE);
 
@@ -251,58 +265,26 @@ public class LoginActivity extends AppCompatActivity {
             }
         }
 
-        // Generate content using ONNX models (expects raw SMS text)
-        generativeModelHelper.generateContent(smsText, new GenerativeModelHelper.ContentGenerationCallback() {
+        // Analyze using ONNX models (expects raw SMS text)
+        smsAnalysis = generativeModelHelper.analyzeSms(smsText, new GenerativeModelHelper.TransactionCallback() {
             @Override
-            public void onSuccess(String response) {
-                isAnalyzingSms = false;
-                binding.analyzeSmsButton.setEnabled(true);
+            public void onSuccess(ParsedTransaction result) {
+                smsAnalysis = null;
                 binding.aiProgressBar.setVisibility(View.GONE);
 
-                try {
-                    // Parse JSON response
-                    // Sometimes AI might return text with markdown code blocks, so we need to extract JSON
-                    String jsonString = response.trim();
-                    if (jsonString.startsWith("```json")) {
-                        jsonString = jsonString.substring(7);
-                    }
-                    if (jsonString.startsWith("```")) {
-                        jsonString = jsonString.substring(3);
-                    }
-                    if (jsonString.endsWith("```")) {
-                        jsonString = jsonString.substring(0, jsonString.length() - 3);
-                    }
-                    jsonString = jsonString.trim();
-
-                    // Find JSON object in the response
-                    int jsonStart = jsonString.indexOf("{");
-                    int jsonEnd = jsonString.lastIndexOf("}");
-                    if (jsonStart != -1 && jsonEnd != -1 && jsonEnd > jsonStart) {
-                        jsonString = jsonString.substring(jsonStart, jsonEnd + 1);
-                    }
+                String type = result.getType().jsonValue();
+                String description = result.getDescription();
 
-                    JSONObject jsonObject = new JSONObject(jsonString);
-                    
-                    String amount = jsonObject.optString("amount", "N/A");
-                    String type = jsonObject.optString("type", "N/A");
-                    String description = jsonObject.optString("description", "N/A");
-
-                    // Display results
-                    binding.amountValue.setText(amount);
-                    binding.typeValue.setText(type);
-                    binding.descriptionValue.setText(description);
-                    binding.resultsCard.setVisibility(View.VISIBLE);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error parsing JSON response", e);
-                    Toast.makeText(LoginActivity.this, "Error parsing response: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    Log.d(TAG, "Raw response: " + response);
-                }
+                // Display results
+                binding.amountValue.setText(result.hasAmount() ? result.getAmount().toPlainString() : "N/A");
+                binding.typeValue.setText(type != null ? type : "N/A");
+                binding.descriptionValue.setText(description != null ? description : "N/A");
+                binding.resultsCard.setVisibility(View.VISIBLE);
             }
 
             @Override
             public void onFailure(String error) {
-                isAnalyzingSms = false;
-                binding.analyzeSmsButton.setEnabled(true);
+                smsAnalysis = null;
                 binding.aiProgressBar.setVisibility(View.GONE);
                 
                 Toast.makeText(LoginActivity.this, "Analysis failed: " + error, Toast.LENGTH_LONG).show();
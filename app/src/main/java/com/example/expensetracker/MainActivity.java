@@ -18,6 +18,7 @@ public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MainActivity";
     private ActivityMainBinding binding;
     private GenerativeModelHelper generativeModelHelper;
+    private InferenceHandle modelStatus = null; // Pending model-ready notification, cancelled in onDestroy
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -40,14 +41,27 @@ public class MainActivity extends AppCompatActivity {
         initializeGenAI();
     }
 
+    @Override
+    protected void onDestroy() {
+        if (modelStatus != null) {
+            modelStatus.cancel();
+            modelStatus = null;
+        }
+        if (generativeModelHelper != null) {
+            ModelRegistry.release(generativeModelHelper);
+            generativeModelHelper = null;
+        }
+        super.onDestroy();
+    }
+
     /**
      * Initialize the ML Kit GenAI Prompt API
      */
     private void initializeGenAI() {
-        generativeModelHelper = new GenerativeModelHelper(this);
+        generativeModelHelper = ModelRegistry.acquire(this);
         
         // Check model status and prepare if needed
-        generativeModelHelper.checkAndPrepareModel(new GenerativeModelHelper.ModelStatusCallback() {
+        modelStatus = generativeModelHelper.checkAndPrepareModel(new GenerativeModelHelper.ModelStatusCallback() {
             @Override
             public void onStatusChecked(int status) {
                 Log.d(TAG, "Model status checked: " + status);
@@ -76,9 +90,8 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onModelReady() {
                 Log.d(TAG, "Model is ready to use");
-                // Optional: Warm up the model for faster first inference
-                generativeModelHelper.warmup();
-                
+                // Already warmed up on the inference thread while loading
+
                 // Example: Generate content once model is ready
                 exampleTextGeneration();
             }
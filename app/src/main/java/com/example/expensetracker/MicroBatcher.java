@@ -0,0 +1,209 @@
+package com.example.expensetracker;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent analyzeSms calls into one batched session.run.
+ * A batch is flushed when the window expires or when maxBatchSize requests are pending,
+ * whichever comes first. A cancelled request leaves the pending batch right away; expired ones
+ * are left out when the batch fills up, is flushed and is run, so neither takes a batch slot.
+ */
+class MicroBatcher {
+    private static final String TAG = "MicroBatcher";
+
+    interface BatchRunner {
+        /** Returns one result per text, in order. */
+        List<ParsedTransaction> run(List<String> texts) throws Exception;
+    }
+
+    private static class PendingRequest {
+        final String smsText;
+        final InferenceHandle handle;
+        final GenerativeModelHelper.TransactionCallback callback;
+        final long submittedNanos;
+
+        PendingRequest(String smsText, InferenceHandle handle, GenerativeModelHelper.TransactionCallback callback,
+                       long submittedNanos) {
+            this.smsText = smsText;
+            this.handle = handle;
+            this.callback = callback;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+
+    private final BatchRunner runner;
+    private final Executor inferenceExecutor;
+    private final Executor callbackExecutor;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledThreadPoolExecutor timer;
+    private final InferenceMetrics metrics; // Null when metrics are disabled
+    private final AtomicLong droppedRequests;
+
+    private final Object lock = new Object();
+    private List<PendingRequest> pending = new ArrayList<>();
+    private ScheduledFuture<?> flushTask;
+
+    /**
+     * @param metrics receives the QUEUE_WAIT of each request, from submit until its batch runs; may be null
+     * @param droppedRequests counts requests cancelled or expired before their batch ran
+     */
+    MicroBatcher(BatchRunner runner, Executor inferenceExecutor, Executor callbackExecutor,
+                 long windowMillis, int maxBatchSize, InferenceMetrics metrics, AtomicLong droppedRequests) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("windowMillis must be >= 0");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be > 0");
+        }
+        this.runner = runner;
+        this.inferenceExecutor = inferenceExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.metrics = metrics;
+        this.droppedRequests = droppedRequests;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> new Thread(r, "onnx-microbatch-timer"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    void submit(String smsText, InferenceHandle handle, GenerativeModelHelper.TransactionCallback callback) {
+        PendingRequest request = new PendingRequest(smsText, handle, callback, metrics != null ? System.nanoTime() : 0);
+        List<PendingRequest> ready = null;
+        synchronized (lock) {
+            pending.add(request);
+            if (pending.size() >= maxBatchSize) {
+                removeStaleLocked();
+            }
+            if (pending.size() >= maxBatchSize) {
+                ready = takePendingLocked();
+            } else if (pending.size() == 1 && flushTask == null) {
+                flushTask = timer.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        handle.onCancel(() -> remove(request));
+        if (ready != null) {
+            dispatch(ready);
+        }
+    }
+
+    private void remove(PendingRequest request) {
+        synchronized (lock) {
+            if (!pending.remove(request)) {
+                return; // Already dispatched; runBatch skips it
+            }
+            if (pending.isEmpty() && flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+        }
+        droppedRequests.incrementAndGet();
+    }
+
+    private void flush() {
+        List<PendingRequest> ready;
+        synchronized (lock) {
+            removeStaleLocked();
+            if (pending.isEmpty()) {
+                if (flushTask != null) {
+                    flushTask.cancel(false);
+                    flushTask = null;
+                }
+                return;
+            }
+            ready = takePendingLocked();
+        }
+        dispatch(ready);
+    }
+
+    private void removeStaleLocked() {
+        for (Iterator<PendingRequest> it = pending.iterator(); it.hasNext(); ) {
+            if (it.next().handle.isStale()) {
+                it.remove();
+                droppedRequests.incrementAndGet();
+            }
+        }
+    }
+
+    private List<PendingRequest> takePendingLocked() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        List<PendingRequest> ready = pending;
+        pending = new ArrayList<>();
+        return ready;
+    }
+
+    private void dispatch(List<PendingRequest> batch) {
+        try {
+            inferenceExecutor.execute(() -> runBatch(batch));
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Inference queue full, rejecting " + batch.size() + " coalesced request(s)");
+            failAll(batch, "Inference queue full, try again");
+        }
+    }
+
+    private void runBatch(List<PendingRequest> pendingBatch) {
+        List<PendingRequest> batch = new ArrayList<>(pendingBatch.size());
+        List<String> texts = new ArrayList<>(pendingBatch.size());
+        long now = metrics != null ? System.nanoTime() : 0;
+        for (PendingRequest request : pendingBatch) {
+            if (metrics != null) {
+                metrics.record(InferenceMetrics.Stage.QUEUE_WAIT, request.submittedNanos, now);
+            }
+            if (request.handle.isStale()) {
+                droppedRequests.incrementAndGet();
+            } else {
+                batch.add(request);
+                texts.add(request.smsText);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<ParsedTransaction> results = runner.run(texts);
+            for (int i = 0; i < batch.size(); i++) {
+                PendingRequest request = batch.get(i);
+                ParsedTransaction result = results.get(i);
+                callbackExecutor.execute(() -> {
+                    if (request.handle.finish()) {
+                        request.callback.onSuccess(result);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Micro-batch inference error", e);
+            failAll(batch, "Inference failed: " + e.getMessage());
+        }
+    }
+
+    private void failAll(List<PendingRequest> batch, String error) {
+        for (PendingRequest request : batch) {
+            callbackExecutor.execute(() -> {
+                if (request.handle.finish()) {
+                    request.callback.onFailure(error);
+                }
+            });
+        }
+    }
+
+    /**
+     * Flushes anything still pending and stops the window timer.
+     */
+    void shutdown() {
+        flush();
+        timer.shutdownNow();
+    }
+}
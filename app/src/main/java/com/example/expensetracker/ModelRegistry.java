@@ -0,0 +1,139 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide owner of loaded models. Each model asset is loaded once per {@link InferenceConfig}
+ * and shared by every screen that acquires it with an equal config, so rotation and navigation
+ * reuse the same OrtSession.
+ *
+ * Usage: acquire in onCreate, release in onDestroy.
+ */
+public final class ModelRegistry {
+    private static final String TAG = "ModelRegistry";
+    // Keep an unused model briefly so a configuration change doesn't reload it
+    private static final long IDLE_CLOSE_DELAY_MS = 30_000;
+
+    private static final Map<Key, Entry> entries = new HashMap<>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private static final class Key {
+        final String modelAsset;
+        final InferenceConfig config;
+
+        Key(String modelAsset, InferenceConfig config) {
+            this.modelAsset = modelAsset;
+            this.config = config;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return modelAsset.equals(other.modelAsset) && config.equals(other.config);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * modelAsset.hashCode() + config.hashCode();
+        }
+    }
+
+    private static class Entry {
+        final Key key;
+        final String modelAsset;
+        final GenerativeModelHelper helper;
+        int refCount = 0;
+        Runnable pendingClose = null;
+
+        Entry(Key key, GenerativeModelHelper helper) {
+            this.key = key;
+            this.modelAsset = key.modelAsset;
+            this.helper = helper;
+        }
+    }
+
+    private ModelRegistry() {
+    }
+
+    /**
+     * Returns the shared helper for the device's model variant, see {@link ModelVariant#forDevice}.
+     */
+    public static GenerativeModelHelper acquire(Context context) {
+        return acquire(context, InferenceConfig.defaults());
+    }
+
+    /**
+     * Returns the shared helper for config, on the model variant it names or the device's.
+     */
+    public static GenerativeModelHelper acquire(Context context, InferenceConfig config) {
+        return acquire(context, ModelVariant.resolve(context, config.modelVariant).getAssetName(), config);
+    }
+
+    /**
+     * Returns the shared helper for modelAsset with the default config, loading it on first use.
+     */
+    public static GenerativeModelHelper acquire(Context context, String modelAsset) {
+        return acquire(context, modelAsset, InferenceConfig.defaults());
+    }
+
+    /**
+     * Returns the shared helper for modelAsset and config, loading it on first use. Callers with
+     * different configs get separate helpers, each with its own session.
+     * Every acquire must be balanced by one {@link #release(GenerativeModelHelper)}.
+     */
+    public static synchronized GenerativeModelHelper acquire(Context context, String modelAsset,
+                                                             InferenceConfig config) {
+        Key key = new Key(modelAsset, config);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key, new GenerativeModelHelper(context, modelAsset, config));
+            entries.put(key, entry);
+            Log.d(TAG, "Loading shared model " + modelAsset);
+        }
+        if (entry.pendingClose != null) {
+            mainHandler.removeCallbacks(entry.pendingClose);
+            entry.pendingClose = null;
+        }
+        entry.refCount++;
+        return entry.helper;
+    }
+
+    /**
+     * Drops one reference. The session is closed once no screen has used it for a short grace period.
+     */
+    public static synchronized void release(GenerativeModelHelper helper) {
+        for (Entry entry : entries.values()) {
+            if (entry.helper != helper) {
+                continue;
+            }
+            if (entry.refCount == 0) {
+                Log.w(TAG, "release() without matching acquire() for " + entry.modelAsset);
+                return;
+            }
+            entry.refCount--;
+            if (entry.refCount == 0) {
+                entry.pendingClose = () -> closeIfUnused(entry);
+                mainHandler.postDelayed(entry.pendingClose, IDLE_CLOSE_DELAY_MS);
+            }
+            return;
+        }
+        Log.w(TAG, "release() for a helper not owned by the registry");
+    }
+
+    private static synchronized void closeIfUnused(Entry entry) {
+        if (entry.refCount > 0 || entries.get(entry.key) != entry) {
+            return;
+        }
+        entries.remove(entry.key);
+        entry.helper.shutdown();
+        Log.d(TAG, "Closed idle model " + entry.modelAsset);
+    }
+}
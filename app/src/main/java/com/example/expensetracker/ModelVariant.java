@@ -0,0 +1,77 @@
+package com.example.expensetracker;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Packaged builds of the SMS model. INT8 is the dynamically quantized export of the same graph
+ * (int8 weights, float inputs and outputs), about 4x smaller and faster on low-end CPUs.
+ *
+ * Without an explicit choice the variant follows the device tier; a variant whose asset is
+ * not packaged falls back to FP32.
+ */
+public enum ModelVariant {
+    FP32(GenerativeModelHelper.DEFAULT_MODEL_ASSET),
+    INT8("sms_model.int8.onnx");
+
+    private static final String TAG = "ModelVariant";
+    // Devices below this much RAM, or with this few cores, count as low tier
+    private static final long LOW_TIER_TOTAL_MEMORY_BYTES = 3L * 1024 * 1024 * 1024;
+    private static final int LOW_TIER_MAX_CORES = 4;
+
+    private final String assetName;
+
+    ModelVariant(String assetName) {
+        this.assetName = assetName;
+    }
+
+    public String getAssetName() {
+        return assetName;
+    }
+
+    /**
+     * INT8 on low-tier devices, FP32 otherwise.
+     */
+    public static ModelVariant forDevice(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo(memoryInfo);
+        boolean lowTier = isLowTier(activityManager.isLowRamDevice(), memoryInfo.totalMem,
+                Runtime.getRuntime().availableProcessors());
+        return lowTier ? INT8 : FP32;
+    }
+
+    static boolean isLowTier(boolean lowRamDevice, long totalMemoryBytes, int cores) {
+        return lowRamDevice
+                || (totalMemoryBytes > 0 && totalMemoryBytes < LOW_TIER_TOTAL_MEMORY_BYTES)
+                || cores <= LOW_TIER_MAX_CORES;
+    }
+
+    /**
+     * The requested variant, or the device's when requested is null, if its asset is packaged; FP32 otherwise.
+     */
+    static ModelVariant resolve(Context context, ModelVariant requested) {
+        ModelVariant variant = requested != null ? requested : forDevice(context);
+        if (variant != FP32 && !isPackaged(context, variant)) {
+            Log.w(TAG, variant + " model " + variant.assetName + " not packaged, using " + FP32);
+            return FP32;
+        }
+        return variant;
+    }
+
+    /**
+     * Opens the asset instead of listing the asset root, which scans every entry in the APK
+     * and is too slow for the main thread. Open works for compressed and stored assets alike.
+     */
+    static boolean isPackaged(Context context, ModelVariant variant) {
+        try (InputStream ignored = context.getAssets().open(variant.assetName)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.expensetracker;
+
+/**
+ * Immutable fixed-point amount: a whole number of minor units (paise for INR) plus an
+ * ISO 4217 currency code. Sums are exact and no floating point is involved.
+ */
+public final class Money implements Comparable<Money> {
+    public static final String INR = "INR";
+    private static final long MINOR_PER_MAJOR = 100;
+
+    private final long minorUnits;
+    private final String currency;
+
+    private Money(long minorUnits, String currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits, String currency) {
+        if (currency == null) {
+            throw new IllegalArgumentException("currency must not be null");
+        }
+        return new Money(minorUnits, currency);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    /**
+     * Approximate value in major units, for display or charts only.
+     */
+    public double toMajorUnits() {
+        return (double) minorUnits / MINOR_PER_MAJOR;
+    }
+
+    /**
+     * Exact decimal form such as "1250.00", also valid as a JSON number.
+     */
+    public String toPlainString() {
+        return appendPlain(new StringBuilder(16), minorUnits).toString();
+    }
+
+    /**
+     * Appends the exact decimal form of an amount in minor units without intermediate strings.
+     */
+    static StringBuilder appendPlain(StringBuilder out, long minorUnits) {
+        long major = minorUnits / MINOR_PER_MAJOR;
+        long minor = Math.abs(minorUnits % MINOR_PER_MAJOR);
+        if (minorUnits < 0 && major == 0) {
+            out.append('-');
+        }
+        out.append(major).append('.');
+        if (minor < 10) {
+            out.append('0');
+        }
+        return out.append(minor);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money other = (Money) o;
+        return minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return currency + " " + toPlainString();
+    }
+}
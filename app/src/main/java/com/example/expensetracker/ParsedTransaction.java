@@ -0,0 +1,139 @@
+package com.example.expensetracker;
+
+import java.util.List;
+
+/**
+ * Immutable result of analyzing one SMS: type, amount and description.
+ * Amount and description are only set for debit/credit transactions.
+ */
+public final class ParsedTransaction {
+    static final long NO_AMOUNT = AmountScanner.NOT_FOUND;
+    static final ParsedTransaction UNKNOWN = new ParsedTransaction(TransactionType.UNKNOWN, NO_AMOUNT, null, null);
+    static final ParsedTransaction NONE = new ParsedTransaction(TransactionType.NONE, NO_AMOUNT, null, null);
+
+    private final TransactionType type;
+    // Kept as primitives so results can be summed without allocating Money objects
+    private final long amountMinor;
+    private final String currency;
+    private final String description;
+
+    /**
+     * @param amountMinor amount in minor units, or {@link #NO_AMOUNT}
+     */
+    ParsedTransaction(TransactionType type, long amountMinor, String currency, String description) {
+        this.type = type;
+        this.amountMinor = amountMinor;
+        this.currency = amountMinor == NO_AMOUNT ? null : currency;
+        this.description = description;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public boolean isTransaction() {
+        return type.isTransaction();
+    }
+
+    public boolean hasAmount() {
+        return amountMinor != NO_AMOUNT;
+    }
+
+    /**
+     * Amount found in the SMS, or null if none was found.
+     */
+    public Money getAmount() {
+        return hasAmount() ? Money.ofMinor(amountMinor, currency) : null;
+    }
+
+    /**
+     * Amount in minor units (paise for INR), or {@link #NO_AMOUNT} if none was found.
+     */
+    public long getAmountMinorUnits() {
+        return amountMinor;
+    }
+
+    /**
+     * Currency code of the amount, or null if none was found.
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Exact total of the amounts of all results of the given type, e.g. all debits in a batch.
+     * Results without an amount are skipped.
+     *
+     * @throws IllegalArgumentException if the matching amounts mix currencies
+     */
+    public static Money total(List<ParsedTransaction> results, TransactionType type, String currency) {
+        long sum = 0;
+        for (int i = 0; i < results.size(); i++) {
+            ParsedTransaction result = results.get(i);
+            if (result.type != type || !result.hasAmount()) {
+                continue;
+            }
+            if (!currency.equals(result.currency)) {
+                throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + result.currency);
+            }
+            sum = Math.addExact(sum, result.amountMinor);
+        }
+        return Money.ofMinor(sum, currency);
+    }
+
+    /**
+     * Payee/merchant description, or null if none was found.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * JSON adapter for callers of the string API: {"type":..,"amount":..,"description":..}.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+
+        // Type
+        json.append("\"type\":");
+        String typeValue = type.jsonValue();
+        if (typeValue == null) {
+            json.append("null");
+        } else {
+            json.append("\"").append(escapeJson(typeValue)).append("\"");
+        }
+
+        // Amount
+        json.append(",\"amount\":");
+        if (!hasAmount()) {
+            json.append("null");
+        } else {
+            Money.appendPlain(json, amountMinor);
+        }
+
+        // Description
+        json.append(",\"description\":");
+        if (description == null) {
+            json.append("null");
+        } else {
+            json.append("\"").append(escapeJson(description)).append("\"");
+        }
+
+        json.append("}");
+        return json.toString();
+    }
+
+    private static String escapeJson(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r")
+                .replace("\t", "\\t");
+    }
+
+    @Override
+    public String toString() {
+        return "ParsedTransaction{type=" + type + ", amount=" + getAmount() + ", description=" + description + "}";
+    }
+}
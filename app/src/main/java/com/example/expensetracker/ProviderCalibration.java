@@ -0,0 +1,54 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+/**
+ * Remembers which {@link ExecutionProvider} ran a model fastest on this device, so the
+ * comparison runs once per model and OS build instead of on every launch.
+ */
+final class ProviderCalibration {
+    private static final String PREFS = "onnx_provider_calibration";
+    // XNNPACK must beat the default kernels by this much to be worth the extra thread pool
+    static final double MIN_SPEEDUP = 1.05;
+
+    private final SharedPreferences prefs;
+
+    ProviderCalibration(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * The stored winner for this model, or null if it has not been calibrated on this build.
+     */
+    ExecutionProvider get(String modelHash) {
+        String name = prefs.getString(key(modelHash), null);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return ExecutionProvider.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    void put(String modelHash, ExecutionProvider provider) {
+        prefs.edit().putString(key(modelHash), provider.name()).apply();
+    }
+
+    /**
+     * The faster of the two timings; CPU unless XNNPACK is faster by at least {@link #MIN_SPEEDUP}.
+     */
+    static ExecutionProvider pickFaster(long cpuNanos, long xnnpackNanos) {
+        return xnnpackNanos > 0 && cpuNanos >= xnnpackNanos * MIN_SPEEDUP
+                ? ExecutionProvider.XNNPACK
+                : ExecutionProvider.CPU;
+    }
+
+    // An OS update can change kernel performance, so the build fingerprint is part of the key
+    private static String key(String modelHash) {
+        return modelHash + "@" + Build.FINGERPRINT;
+    }
+}
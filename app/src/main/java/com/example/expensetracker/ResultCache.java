@@ -0,0 +1,248 @@
+package com.example.expensetracker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU cache of analysis results keyed by a 64-bit hash of the normalized SMS text
+ * (trimmed, lower-cased, whitespace runs collapsed). Entries expire after a TTL and the whole
+ * cache is dropped when the model version changes. Thread-safe.
+ */
+public final class ResultCache<V> {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final class Entry<V> {
+        final String text;
+        final V value;
+        final long createdNanos;
+
+        Entry(String text, V value, long createdNanos) {
+            this.text = text;
+            this.value = value;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    /**
+     * Point-in-time counters, for sizing the cache.
+     */
+    public static final class Stats {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+
+        Stats(int size, int maxSize, long hits, long misses, long evictions, long expirations, long invalidations) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /** Entries dropped because the cache was full. */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /** Entries dropped because they outlived the TTL. */
+        public long getExpirations() {
+            return expirations;
+        }
+
+        /** Times the cache was cleared because the model version changed. */
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "ResultCache.Stats{size=" + size + "/" + maxSize + ", hits=" + hits + ", misses=" + misses
+                    + ", evictions=" + evictions + ", expirations=" + expirations
+                    + ", invalidations=" + invalidations + "}";
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Long, Entry<V>> entries;
+    private String modelVersion = null;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    /**
+     * @param maxSize max entries; 0 disables the cache
+     * @param ttlMillis entry lifetime; 0 means entries never expire
+     */
+    ResultCache(int maxSize, long ttlMillis) {
+        if (maxSize < 0 || ttlMillis < 0) {
+            throw new IllegalArgumentException("maxSize and ttlMillis must be >= 0");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<Long, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<V>> eldest) {
+                if (size() > ResultCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Clears all entries if the version differs from the one the cache was filled with.
+     */
+    synchronized void setModelVersion(String version) {
+        if (modelVersion != null && !modelVersion.equals(version) && !entries.isEmpty()) {
+            entries.clear();
+            invalidations++;
+        }
+        modelVersion = version;
+    }
+
+    /**
+     * Cached value for the text, or null on a miss.
+     */
+    synchronized V get(String text) {
+        if (maxSize == 0) {
+            return null;
+        }
+        Long key = hash(text);
+        Entry<V> entry = entries.get(key);
+        if (entry == null || !sameNormalized(entry.text, text)) {
+            misses++;
+            return null;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - entry.createdNanos > ttlNanos) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    synchronized void put(String text, V value) {
+        if (maxSize == 0 || value == null) {
+            return;
+        }
+        entries.put(hash(text), new Entry<>(text, value, System.nanoTime()));
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized Stats stats() {
+        return new Stats(entries.size(), maxSize, hits, misses, evictions, expirations, invalidations);
+    }
+
+    /**
+     * FNV-1a over the normalized characters, computed without building the normalized string.
+     */
+    static long hash(CharSequence text) {
+        long h = FNV_OFFSET;
+        int end = trimmedEnd(text);
+        boolean pendingSpace = false;
+        for (int i = trimmedStart(text, end); i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                h = (h ^ ' ') * FNV_PRIME;
+                pendingSpace = false;
+            }
+            c = Character.toLowerCase(c);
+            h = (h ^ (c & 0xff)) * FNV_PRIME;
+            h = (h ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * Whether two texts normalize to the same string; guards against hash collisions.
+     */
+    static boolean sameNormalized(CharSequence a, CharSequence b) {
+        int aEnd = trimmedEnd(a);
+        int bEnd = trimmedEnd(b);
+        int i = trimmedStart(a, aEnd);
+        int j = trimmedStart(b, bEnd);
+        while (i < aEnd && j < bEnd) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            boolean wa = Character.isWhitespace(ca);
+            boolean wb = Character.isWhitespace(cb);
+            if (wa || wb) {
+                if (!(wa && wb)) {
+                    return false;
+                }
+                while (i < aEnd && Character.isWhitespace(a.charAt(i))) {
+                    i++;
+                }
+                while (j < bEnd && Character.isWhitespace(b.charAt(j))) {
+                    j++;
+                }
+                continue;
+            }
+            if (Character.toLowerCase(ca) != Character.toLowerCase(cb)) {
+                return false;
+            }
+            i++;
+            j++;
+        }
+        return i == aEnd && j == bEnd;
+    }
+
+    private static int trimmedStart(CharSequence text, int end) {
+        int start = 0;
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimmedEnd(CharSequence text) {
+        int end = text == null ? 0 : text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+}
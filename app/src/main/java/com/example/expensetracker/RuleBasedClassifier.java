@@ -0,0 +1,77 @@
+package com.example.expensetracker;
+
+/**
+ * Keyword rules for the common bank templates, in one pass over the words of the SMS.
+ *
+ * Debit words ("debited", "spent", ...) or credit words ("credited", "received", ...) together
+ * with an amount give a confident decision. A keyword without an amount, both kinds of keyword
+ * (transfers between own accounts), or no keyword at all give a confidence below the cascade's
+ * trust threshold, so a {@link CascadeClassifier} passes those messages on to the model. The rules
+ * only know their own keywords: "salary transferred" has none, but is still a credit.
+ *
+ * Negation, future-tense and collect-request words ("not debited", "will be debited",
+ * "request to pay") also defer to the model: the keyword is there, but no money has moved.
+ *
+ * The confidences are hand-picked, not calibrated, so the cascade is off by default; check them
+ * against labeled SMS with {@link ClassifierEvaluation#calibrate} before turning it on.
+ */
+final class RuleBasedClassifier implements SmsClassifier {
+    static final float CONFIDENT = 0.95f;
+    static final float KEYWORD_ONLY = 0.7f;
+    static final float CONFLICTING = 0.5f;
+    static final float NO_KEYWORD_NO_AMOUNT = 0.8f; // Below CascadeClassifier.DEFAULT_TRUST_THRESHOLD
+    static final float AMOUNT_ONLY = 0.4f;
+    static final float HEDGED = 0.3f;
+
+    private static final String[] DEBIT_WORDS = {"debited", "spent", "withdrawn", "paid", "sent", "purchase"};
+    private static final String[] CREDIT_WORDS = {"credited", "received", "deposited", "refund", "refunded"};
+    // Negation, future tense and collect requests: a keyword that does not mean money moved
+    private static final String[] HEDGE_WORDS = {
+            "not", "failed", "declined", "unsuccessful",
+            "will", "due", "scheduled", "upcoming",
+            "request", "requested", "collect", "ignore"};
+
+    @Override
+    public Classification classify(String smsText) {
+        int length = smsText == null ? 0 : smsText.length();
+        int debits = 0;
+        int credits = 0;
+        boolean hedged = false;
+        TransactionType first = null;
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetter(smsText.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetter(smsText.charAt(i))) {
+                i++;
+            }
+            if (SmsWords.matchesAny(smsText, start, i, DEBIT_WORDS)) {
+                debits++;
+                if (first == null) {
+                    first = TransactionType.DEBIT;
+                }
+            } else if (SmsWords.matchesAny(smsText, start, i, CREDIT_WORDS)) {
+                credits++;
+                if (first == null) {
+                    first = TransactionType.CREDIT;
+                }
+            } else if (SmsWords.matchesAny(smsText, start, i, HEDGE_WORDS)) {
+                hedged = true;
+            }
+        }
+        boolean hasAmount = AmountScanner.scanMinorUnits(smsText) != AmountScanner.NOT_FOUND;
+
+        if (first == null) {
+            return new Classification(TransactionType.NONE, hasAmount ? AMOUNT_ONLY : NO_KEYWORD_NO_AMOUNT);
+        }
+        if (hedged) {
+            return new Classification(first, HEDGED);
+        }
+        if (debits > 0 && credits > 0) {
+            return new Classification(first, CONFLICTING);
+        }
+        return new Classification(first, hasAmount ? CONFIDENT : KEYWORD_ONLY);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.expensetracker;
+
+import ai.onnxruntime.OrtException;
+
+/**
+ * Decides the transaction type of one SMS together with a confidence in [0, 1].
+ *
+ * Implementations only score. Callers turn low-confidence scores into UNKNOWN through one shared
+ * threshold ({@link Classification#typeAt}), so rules and model are calibrated the same way;
+ * see {@link ClassifierEvaluation} for measuring accuracy and picking the threshold.
+ */
+public interface SmsClassifier {
+    float DEFAULT_CONFIDENCE_THRESHOLD = 0.5f;
+
+    Classification classify(String smsText) throws OrtException;
+}
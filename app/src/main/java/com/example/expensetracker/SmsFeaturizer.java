@@ -0,0 +1,144 @@
+package com.example.expensetracker;
+
+import java.nio.FloatBuffer;
+import java.text.Normalizer;
+
+/**
+ * Encodes SMS text into the model's per-character float features.
+ * Writes straight into a caller-owned buffer, so encoding allocates nothing.
+ *
+ * ASCII keeps the trained encoding exactly: lower-cased c / 128, control characters such as
+ * '\n' and '\t' included, from a precomputed table. Other characters map deterministically
+ * into [0, 1): accented Latin letters to their base letter, typographic quotes, dashes and
+ * spaces to their ASCII form, currency signs such as ₹ to '$', and everything else
+ * (Devanagari, emoji, ...) to one shared feature. A surrogate pair is one character and
+ * yields one feature.
+ */
+final class SmsFeaturizer {
+    // DEL never occurs in SMS text, so its slot is free for "any other character"
+    static final float OTHER = 127 / 128.0f;
+    // Precomputed features for Latin-1 and Latin Extended-A/B, which covers accented letters
+    private static final float[] TABLE = new float[0x250];
+
+    static {
+        for (char c = 0; c < TABLE.length; c++) {
+            TABLE[c] = feature(fold(c));
+        }
+    }
+
+    private SmsFeaturizer() {
+    }
+
+    /**
+     * Number of features encode() would emit before padding: the trimmed length,
+     * counting a surrogate pair once.
+     */
+    static int encodedLength(CharSequence sms) {
+        int end = trimmedEnd(sms);
+        int count = 0;
+        for (int i = trimmedStart(sms, end); i < end; i++) {
+            if (Character.isHighSurrogate(sms.charAt(i)) && i + 1 < end && Character.isLowSurrogate(sms.charAt(i + 1))) {
+                i++;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes exactly targetSize floats at the buffer's current position, advancing it.
+     * Text is trimmed and normalized inline; shorter texts are padded with 0.0f.
+     */
+    static void encode(CharSequence sms, FloatBuffer dst, int targetSize) {
+        int end = trimmedEnd(sms);
+        int i = trimmedStart(sms, end);
+        int written = 0;
+        while (i < end && written < targetSize) {
+            char c = sms.charAt(i++);
+            if (c < TABLE.length) {
+                dst.put(TABLE[c]);
+            } else if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(sms.charAt(i))) {
+                // One feature per code point; supplementary characters are emoji and rare scripts
+                i++;
+                dst.put(OTHER);
+            } else {
+                dst.put(featureOutsideTable(c));
+            }
+            written++;
+        }
+        for (; written < targetSize; written++) {
+            // Pad with zeros
+            dst.put(0.0f);
+        }
+    }
+
+    /**
+     * Feature of a character outside the table, without allocating.
+     */
+    private static float featureOutsideTable(char c) {
+        char special = foldSpecial(c);
+        return special != 0 ? feature(special) : OTHER;
+    }
+
+    /**
+     * Folds a character to the ASCII character it should be encoded as, or to itself if none.
+     * Only used to build the table, so it may allocate.
+     */
+    private static char fold(char c) {
+        char special = foldSpecial(c);
+        if (special != 0) {
+            return special;
+        }
+        char lower = Character.toLowerCase(c);
+        if (lower < 128) {
+            return lower;
+        }
+        // Accented Latin letters: é -> e
+        String decomposed = Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD);
+        return decomposed.charAt(0) < 128 ? decomposed.charAt(0) : lower;
+    }
+
+    /**
+     * ASCII stand-in for non-ASCII spaces, quotes, dashes and currency signs, or 0 if c is none of them.
+     */
+    private static char foldSpecial(char c) {
+        switch (c) {
+            case '\u00A0': case '\u2007': case '\u2009': case '\u200A': case '\u202F':
+                return ' ';
+            case '\u2018': case '\u2019': case '\u201A': case '\u2032':
+                return '\'';
+            case '\u201C': case '\u201D': case '\u201E': case '\u2033':
+                return '"';
+            case '\u2010': case '\u2011': case '\u2012': case '\u2013': case '\u2014': case '\u2015': case '\u2212':
+                return '-';
+            case '\u20B9': case '\u20A8': case '\u00A3': case '\u20AC': case '\u00A5':
+                return '$';
+            default:
+                return 0;
+        }
+    }
+
+    private static float feature(char folded) {
+        if (folded >= 128) {
+            return OTHER;
+        }
+        // Normalize ASCII value to [0, 1] range
+        return folded / 128.0f;
+    }
+
+    private static int trimmedStart(CharSequence sms, int end) {
+        int start = 0;
+        while (start < end && sms.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimmedEnd(CharSequence sms) {
+        int end = sms == null ? 0 : sms.length();
+        while (end > 0 && sms.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
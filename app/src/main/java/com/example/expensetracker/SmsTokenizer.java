@@ -0,0 +1,18 @@
+package com.example.expensetracker;
+
+import java.nio.LongBuffer;
+
+/**
+ * Turns SMS text into model token ids, for models that take int64 input_ids and attention_mask
+ * instead of {@link SmsFeaturizer}'s per-character floats.
+ */
+interface SmsTokenizer {
+
+    /**
+     * Writes exactly maxTokens ids and mask values at the buffers' current positions, advancing
+     * both: the tokens of the text (truncated if needed) with mask 1, then padding with mask 0.
+     *
+     * @return number of real (non-padding) tokens written
+     */
+    int encode(CharSequence text, LongBuffer ids, LongBuffer attentionMask, int maxTokens);
+}
@@ -0,0 +1,38 @@
+package com.example.expensetracker;
+
+/**
+ * Word lists and allocation-free, case-insensitive word matching shared by the SMS scanners.
+ * Words are given as [start, end) offsets into the SMS; the words they are compared with must be
+ * lower-case.
+ */
+final class SmsWords {
+    /** Words that end a payee: dates, channels, references, balances and amounts. */
+    static final String[] PAYEE_STOP_WORDS = {"on", "via", "ref", "upi", "avl", "for", "by", "info", "-",
+            "and", "is", "has", "with", "using", "dated", "txn", "rs", "inr"};
+    /** Titles whose abbreviation dot does not end a name, as in "Mr. Sharma". */
+    static final String[] TITLES = {"mr", "mrs", "ms", "dr", "shri", "smt"};
+
+    private SmsWords() {
+    }
+
+    static boolean regionEquals(CharSequence sms, int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(sms.charAt(start + i)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean matchesAny(CharSequence sms, int start, int end, String[] words) {
+        for (String word : words) {
+            if (regionEquals(sms, start, end, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.expensetracker;
+
+/**
+ * Reduces a transaction SMS to its template skeleton by masking the fields that vary between
+ * messages of the same template: any token containing a digit (amounts, dates, account numbers,
+ * references) becomes "#", and the party span after "to"/"at"/"from"/"vpa" becomes "@".
+ *
+ * "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI"
+ * becomes "# debited from @ on # to @ via upi".
+ */
+final class TemplateCanonicalizer {
+    // A marker also ends the current span and starts a new one; SmsWords.PAYEE_STOP_WORDS end it too
+    private static final String[] PAYEE_MARKERS = {"to", "at", "from", "vpa"};
+
+    private TemplateCanonicalizer() {
+    }
+
+    static String skeleton(CharSequence sms) {
+        StringBuilder out = new StringBuilder(sms == null ? 0 : sms.length());
+        int length = sms == null ? 0 : sms.length();
+        boolean inPayee = false;
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(sms.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            boolean hasDigit = false;
+            while (i < length && !Character.isWhitespace(sms.charAt(i))) {
+                hasDigit |= Character.isDigit(sms.charAt(i));
+                i++;
+            }
+            int end = i;
+            // Match words without surrounding punctuation such as "to:", "at," or "(ref"
+            int wordEnd = end;
+            while (wordEnd > start + 1 && !Character.isLetterOrDigit(sms.charAt(wordEnd - 1))) {
+                wordEnd--;
+            }
+            int wordStart = start;
+            while (wordStart < wordEnd - 1 && !Character.isLetterOrDigit(sms.charAt(wordStart))) {
+                wordStart++;
+            }
+            boolean isMarker = SmsWords.matchesAny(sms, wordStart, wordEnd, PAYEE_MARKERS);
+
+            if (inPayee) {
+                if (!isMarker && !SmsWords.matchesAny(sms, wordStart, wordEnd, SmsWords.PAYEE_STOP_WORDS)) {
+                    // Payee tokens are masked; a trailing '.' or ',' also ends the payee, except after "Mr."
+                    char last = sms.charAt(end - 1);
+                    if ((last == '.' || last == ',')
+                            && !SmsWords.matchesAny(sms, wordStart, wordEnd, SmsWords.TITLES)) {
+                        inPayee = false;
+                    }
+                    continue;
+                }
+                inPayee = false;
+            }
+
+            if (out.length() > 0) {
+                out.append(' ');
+            }
+            if (hasDigit) {
+                out.append('#');
+            } else {
+                for (int c = start; c < end; c++) {
+                    out.append(Character.toLowerCase(sms.charAt(c)));
+                }
+                if (isMarker) {
+                    out.append(" @");
+                    inPayee = true;
+                }
+            }
+        }
+        return out.toString();
+    }
+}
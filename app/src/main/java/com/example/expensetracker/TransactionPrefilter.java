@@ -0,0 +1,197 @@
+package com.example.expensetracker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cheap first stage that rejects obvious non-transactions (OTPs, promos, chats) before
+ * featurization and session.run.
+ *
+ * All keywords are compiled into one Aho-Corasick automaton, so a message is scanned once,
+ * case-insensitively, whatever the number of keywords. Matches must be whole words.
+ * A message passes if it has a strong keyword (debited, UPI, NEFT, ...), or a weak one
+ * (Rs, INR, A/c, ...) and no negative one (OTP, offer, ...). A payment word (paid, received)
+ * with an amount outweighs negative ones, so "Paid Rs 500 ... get 10% discount" still reaches
+ * the model. Immutable and thread-safe.
+ */
+final class TransactionPrefilter {
+    static final String[] DEFAULT_STRONG = {"debited", "credited", "spent", "withdrawn", "upi", "neft", "imps", "rtgs"};
+    static final String[] DEFAULT_WEAK = {"rs", "inr", "₹", "a/c", "acct", "txn"};
+    static final String[] DEFAULT_PAYMENT = {"paid", "received"};
+    static final String[] DEFAULT_NEGATIVE = {"otp", "one time password", "verification code", "offer", "discount",
+            "coupon", "voucher", "sale", "win", "apply now", "pre-approved", "recharge now"};
+
+    private static final int STRONG = 1;
+    private static final int WEAK = 2;
+    private static final int NEGATIVE = 4;
+    private static final int PAYMENT = 8 | WEAK; // Also counts as weak
+
+    private final int[] asciiSymbols = new int[128]; // Symbol per folded ASCII char, -1 if unused
+    private final int asciiSymbolCount;
+    private final char[] otherChars; // Non-ASCII alphabet, sorted; symbols follow the ASCII ones
+    private final int[][] delta; // Complete transition table: [state][symbol] -> state
+    private final int[][] outputs; // Keyword ids ending at each state, including via failure links
+    private final int[] keywordLengths;
+    private final int[] keywordKinds;
+
+    static TransactionPrefilter createDefault() {
+        return new TransactionPrefilter(DEFAULT_STRONG, DEFAULT_WEAK, DEFAULT_PAYMENT, DEFAULT_NEGATIVE);
+    }
+
+    TransactionPrefilter(String[] strong, String[] weak, String[] payment, String[] negative) {
+        List<String> keywords = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+        addAll(keywords, kinds, strong, STRONG);
+        addAll(keywords, kinds, weak, WEAK);
+        addAll(keywords, kinds, payment, PAYMENT);
+        addAll(keywords, kinds, negative, NEGATIVE);
+
+        // Alphabet: every distinct folded char of the keywords
+        Arrays.fill(asciiSymbols, -1);
+        StringBuilder other = new StringBuilder();
+        int symbols = 0;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c < 128) {
+                    if (asciiSymbols[c] < 0) {
+                        asciiSymbols[c] = symbols++;
+                    }
+                } else if (other.indexOf(String.valueOf(c)) < 0) {
+                    other.append(c);
+                }
+            }
+        }
+        asciiSymbolCount = symbols;
+        otherChars = other.toString().toCharArray();
+        Arrays.sort(otherChars);
+        int alphabet = symbols + otherChars.length;
+
+        // Trie
+        List<int[]> gotoTable = new ArrayList<>();
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        gotoTable.add(newRow(alphabet));
+        stateOutputs.add(new ArrayList<>());
+        keywordLengths = new int[keywords.size()];
+        keywordKinds = new int[keywords.size()];
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            keywordLengths[k] = keyword.length();
+            keywordKinds[k] = kinds.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int symbol = symbolOf(keyword.charAt(i));
+                if (gotoTable.get(state)[symbol] < 0) {
+                    gotoTable.get(state)[symbol] = gotoTable.size();
+                    gotoTable.add(newRow(alphabet));
+                    stateOutputs.add(new ArrayList<>());
+                }
+                state = gotoTable.get(state)[symbol];
+            }
+            stateOutputs.get(state).add(k);
+        }
+
+        // Failure links in BFS order, folded into a complete DFA
+        int states = gotoTable.size();
+        delta = gotoTable.toArray(new int[states][]);
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int s = 0; s < alphabet; s++) {
+            if (delta[0][s] < 0) {
+                delta[0][s] = 0;
+            } else {
+                queue.add(delta[0][s]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            stateOutputs.get(state).addAll(stateOutputs.get(fail[state]));
+            for (int s = 0; s < alphabet; s++) {
+                int next = delta[state][s];
+                if (next < 0) {
+                    delta[state][s] = delta[fail[state]][s];
+                } else {
+                    fail[next] = delta[fail[state]][s];
+                    queue.add(next);
+                }
+            }
+        }
+        outputs = new int[states][];
+        for (int state = 0; state < states; state++) {
+            List<Integer> ids = stateOutputs.get(state);
+            outputs[state] = new int[ids.size()];
+            for (int i = 0; i < ids.size(); i++) {
+                outputs[state][i] = ids.get(i);
+            }
+        }
+    }
+
+    /**
+     * Whether the SMS may be a transaction and should go on to the model. One pass, plus an
+     * amount scan for mixed messages; no allocation.
+     */
+    boolean mightBeTransaction(CharSequence sms) {
+        if (sms == null) {
+            return false;
+        }
+        int length = sms.length();
+        int state = 0;
+        int seen = 0;
+        for (int i = 0; i < length; i++) {
+            int symbol = symbolOf(fold(sms.charAt(i)));
+            state = symbol < 0 ? 0 : delta[state][symbol];
+            for (int k : outputs[state]) {
+                if (isWholeWord(sms, i + 1 - keywordLengths[k], i + 1)) {
+                    if (keywordKinds[k] == STRONG) {
+                        return true;
+                    }
+                    seen |= keywordKinds[k];
+                }
+            }
+        }
+        if ((seen & WEAK) == 0) {
+            return false;
+        }
+        if ((seen & NEGATIVE) == 0) {
+            return true;
+        }
+        // A payment with an amount next to promo words is mixed; let the model decide
+        return (seen & PAYMENT) == PAYMENT && AmountScanner.scanMinorUnits(sms) != AmountScanner.NOT_FOUND;
+    }
+
+    private int symbolOf(char c) {
+        if (c < 128) {
+            return asciiSymbols[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? -1 : asciiSymbolCount + index;
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static boolean isWholeWord(CharSequence sms, int start, int end) {
+        return (start == 0 || !Character.isLetter(sms.charAt(start - 1)))
+                && (end == sms.length() || !Character.isLetter(sms.charAt(end)));
+    }
+
+    private static int[] newRow(int alphabet) {
+        int[] row = new int[alphabet];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static void addAll(List<String> keywords, List<Integer> kinds, String[] words, int kind) {
+        for (String word : words) {
+            keywords.add(word.toLowerCase(Locale.ROOT));
+            kinds.add(kind);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.expensetracker;
+
+/**
+ * Type decision for an analyzed SMS.
+ */
+public enum TransactionType {
+    DEBIT("debit"),
+    CREDIT("credit"),
+    /** Model is confident the SMS is not a transaction. */
+    NONE(null),
+    /** Model confidence was below the threshold, or the output was empty. */
+    UNKNOWN(null);
+
+    private final String jsonValue;
+
+    TransactionType(String jsonValue) {
+        this.jsonValue = jsonValue;
+    }
+
+    public boolean isTransaction() {
+        return this == DEBIT || this == CREDIT;
+    }
+
+    /**
+     * Value of the "type" field in the JSON response; null for non-transactions.
+     */
+    public String jsonValue() {
+        return jsonValue;
+    }
+}
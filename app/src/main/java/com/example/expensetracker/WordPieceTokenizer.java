@@ -0,0 +1,208 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uncased WordPiece tokenizer over a BERT-style vocab (one token per line, line number = id,
+ * continuation pieces prefixed with "##").
+ *
+ * Words are runs of letters and digits; every other non-space character is a word of its own.
+ * Each word is split greedily into the longest vocab pieces by walking a character trie, so a
+ * piece lookup costs one step per character rather than a hash of every candidate substring.
+ * Output is [CLS] pieces [SEP] [PAD]..., written straight into the caller's buffers without
+ * allocating. Immutable and thread-safe once built.
+ */
+final class WordPieceTokenizer implements SmsTokenizer {
+    static final String DEFAULT_VOCAB_ASSET = "sms_vocab.txt"; // Next to sms_model.onnx in assets/
+    private static final int MAX_WORD_CHARS = 100; // Longer words become [UNK], as in BERT
+    private static final int NO_NODE = -1;
+
+    // Trie in compressed form: children of node n are childChars/childNodes[childStart[n], childStart[n + 1])
+    private final int[] childStart;
+    private final char[] childChars;
+    private final int[] childNodes;
+    private final int[] tokenIds; // Token id ending at each node, or -1
+    private final int continuationRoot; // Node for "##", where continuation pieces start
+    private final int clsId;
+    private final int sepId;
+    private final int padId;
+    private final int unkId;
+
+    static WordPieceTokenizer fromAsset(Context context, String asset) throws IOException {
+        List<String> vocab = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(context.getAssets().open(asset), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                vocab.add(line.trim());
+            }
+        }
+        return new WordPieceTokenizer(vocab);
+    }
+
+    /**
+     * @param vocab tokens in id order; must contain [CLS], [SEP], [PAD] and [UNK]
+     */
+    WordPieceTokenizer(List<String> vocab) {
+        // Build with maps, then freeze into sorted arrays
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        children.add(new HashMap<>());
+        ids.add(-1);
+        Map<String, Integer> special = new HashMap<>();
+        for (int id = 0; id < vocab.size(); id++) {
+            String token = vocab.get(id);
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (token.startsWith("[") && token.endsWith("]")) {
+                special.put(token, id);
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < token.length(); i++) {
+                char c = fold(token.charAt(i));
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.get(node).put(c, next);
+                    children.add(new HashMap<>());
+                    ids.add(-1);
+                }
+                node = next;
+            }
+            if (ids.get(node) < 0) {
+                ids.set(node, id);
+            }
+        }
+        clsId = requireSpecial(special, "[CLS]");
+        sepId = requireSpecial(special, "[SEP]");
+        padId = requireSpecial(special, "[PAD]");
+        unkId = requireSpecial(special, "[UNK]");
+
+        int nodes = children.size();
+        int edges = nodes - 1;
+        childStart = new int[nodes + 1];
+        childChars = new char[edges];
+        childNodes = new int[edges];
+        tokenIds = new int[nodes];
+        int edge = 0;
+        for (int node = 0; node < nodes; node++) {
+            childStart[node] = edge;
+            tokenIds[node] = ids.get(node);
+            Character[] keys = children.get(node).keySet().toArray(new Character[0]);
+            Arrays.sort(keys);
+            for (Character key : keys) {
+                childChars[edge] = key;
+                childNodes[edge] = children.get(node).get(key);
+                edge++;
+            }
+        }
+        childStart[nodes] = edge;
+        int hash = child(0, '#');
+        continuationRoot = hash == NO_NODE ? NO_NODE : child(hash, '#');
+    }
+
+    @Override
+    public int encode(CharSequence text, LongBuffer ids, LongBuffer attentionMask, int maxTokens) {
+        int base = ids.position();
+        int limit = maxTokens - 1; // Room for [SEP]
+        int count = 0;
+        if (maxTokens >= 2) {
+            ids.put(clsId);
+            count = 1;
+            int length = text == null ? 0 : text.length();
+            int i = 0;
+            while (i < length && count < limit) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                int end = i + 1;
+                if (Character.isLetterOrDigit(c)) {
+                    while (end < length && Character.isLetterOrDigit(text.charAt(end))) {
+                        end++;
+                    }
+                }
+                count = encodeWord(text, i, end, ids, base, count, limit);
+                i = end;
+            }
+            ids.put(sepId);
+            count++;
+        }
+        for (int t = count; t < maxTokens; t++) {
+            ids.put(padId);
+        }
+        for (int t = 0; t < maxTokens; t++) {
+            attentionMask.put(t < count ? 1L : 0L);
+        }
+        return count;
+    }
+
+    /**
+     * Greedy longest-match WordPiece split of text[start, end). A word with no valid split is one [UNK].
+     * Returns the new token count.
+     */
+    private int encodeWord(CharSequence text, int start, int end, LongBuffer ids, int base, int count, int limit) {
+        if (end - start > MAX_WORD_CHARS) {
+            ids.put(unkId);
+            return count + 1;
+        }
+        int wordStart = count;
+        int pos = start;
+        while (pos < end && count < limit) {
+            int node = pos == start ? 0 : continuationRoot;
+            int bestId = -1;
+            int bestEnd = -1;
+            for (int j = pos; j < end && node != NO_NODE; j++) {
+                node = child(node, fold(text.charAt(j)));
+                if (node != NO_NODE && tokenIds[node] >= 0) {
+                    bestId = tokenIds[node];
+                    bestEnd = j + 1;
+                }
+            }
+            if (bestId < 0) {
+                // Drop the pieces written so far and emit [UNK] for the whole word
+                ids.position(base + wordStart);
+                ids.put(unkId);
+                return wordStart + 1;
+            }
+            ids.put(bestId);
+            count++;
+            pos = bestEnd;
+        }
+        return count;
+    }
+
+    private int child(int node, char c) {
+        int index = Arrays.binarySearch(childChars, childStart[node], childStart[node + 1], c);
+        return index < 0 ? NO_NODE : childNodes[index];
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static int requireSpecial(Map<String, Integer> special, String token) {
+        Integer id = special.get(token);
+        if (id == null) {
+            throw new IllegalArgumentException("Vocab is missing " + token);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AmountScanner}.
+ */
+public class AmountScannerTest {
+    private static final String SMS =
+            "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI. Avl bal Rs.10,234.50";
+
+    @Test
+    public void scan_takesFirstCurrencyAmountNotBalance() {
+        assertEquals(1250.00, AmountScanner.scan(SMS), 0.0);
+        assertEquals(125000, AmountScanner.scanMinorUnits(SMS));
+    }
+
+    @Test
+    public void scan_understandsCurrencyMarkers() {
+        assertEquals(500.0, AmountScanner.scan("INR 500 spent on card XX9876"), 0.0);
+        assertEquals(99.5, AmountScanner.scan("Paid ₹99.5 to Swiggy"), 0.0);
+        assertEquals(20.0, AmountScanner.scan("rs 20 credited"), 0.0);
+        assertEquals(75.25, AmountScanner.scan("Amount:INR75.25 debited"), 0.0);
+    }
+
+    @Test
+    public void scan_handlesLakhGroupingAndDecimals() {
+        assertEquals(100000.50, AmountScanner.scan("Rs. 1,00,000.50 credited to a/c"), 0.0);
+        assertEquals(1234567.0, AmountScanner.scan("INR 12,34,567 debited"), 0.0);
+        // Extra decimal digits are ignored rather than rounded
+        assertEquals(3.14, AmountScanner.scan("Rs 3.149 debited"), 0.0);
+    }
+
+    @Test
+    public void scan_readsLeadingDecimalPointAsPaise() {
+        assertEquals(50, AmountScanner.scanMinorUnits("Rs. .50 debited"));
+        assertEquals(5, AmountScanner.scanMinorUnits("INR .05 credited"));
+        // The dot right after the marker is the abbreviation, not a decimal point
+        assertEquals(5000, AmountScanner.scanMinorUnits("Rs.50 debited"));
+    }
+
+    @Test
+    public void scan_skipsAccountNumbersAndDates() {
+        assertEquals(450.0, AmountScanner.scan("A/c XX1234 debited 450 on 12-03-24"), 0.0);
+        assertEquals(450.0, AmountScanner.scan("Card **5678 used for 450 at 10:45"), 0.0);
+        assertEquals(300.0, AmountScanner.scan("A/c no. 987654 credited with 300"), 0.0);
+        assertEquals(300.0, AmountScanner.scan("A/c 987654 debited with Rs 300"), 0.0);
+    }
+
+    @Test
+    public void scan_returnsNaNWithoutAmount() {
+        assertTrue(Double.isNaN(AmountScanner.scan("Your OTP is valid for ten minutes")));
+        assertTrue(Double.isNaN(AmountScanner.scan("A/c XX1234 on 12-03-24")));
+        assertTrue(Double.isNaN(AmountScanner.scan("Rs. pending")));
+        assertTrue(Double.isNaN(AmountScanner.scan("")));
+        assertTrue(Double.isNaN(AmountScanner.scan(null)));
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CascadeClassifier}, {@link RuleBasedClassifier} and
+ * {@link ClassifierEvaluation}, on a small labeled corpus.
+ */
+public class CascadeClassifierTest {
+    private static final List<String> TEXTS = Arrays.asList(
+            "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI. Avl bal Rs.10,234.50",
+            "INR 500.00 spent on Card XX9876 at STARBUCKS on 2024-03-12",
+            "Your A/c XX5678 is credited with Rs 25,000.00 by NEFT from ACME CORP",
+            "Received INR 3,000 in your a/c XX1111 from RAHUL via IMPS",
+            "Rs 2000 withdrawn at ATM from A/c XX4321",
+            "Rs 5,000 debited from A/c XX1 and credited to A/c XX2",
+            "Your refund is being processed",
+            "Use OTP 4321 for your txn of Rs 500 at AMAZON",
+            "Hey, are we still on for dinner tonight?",
+            "Your order has been shipped");
+    private static final List<TransactionType> LABELS = Arrays.asList(
+            TransactionType.DEBIT, TransactionType.DEBIT, TransactionType.CREDIT, TransactionType.CREDIT,
+            TransactionType.DEBIT, TransactionType.DEBIT, TransactionType.NONE, TransactionType.NONE,
+            TransactionType.NONE, TransactionType.NONE);
+
+    /**
+     * Stands in for the ONNX model: knows every label, with a fixed confidence, and counts calls.
+     */
+    private static final class FakeModel implements SmsClassifier {
+        final Map<String, TransactionType> truth = new HashMap<>();
+        int calls;
+
+        FakeModel() {
+            for (int i = 0; i < TEXTS.size(); i++) {
+                truth.put(TEXTS.get(i), LABELS.get(i));
+            }
+        }
+
+        @Override
+        public Classification classify(String smsText) {
+            calls++;
+            return new Classification(truth.get(smsText), 0.8f);
+        }
+    }
+
+    @Test
+    public void rules_confidentOnlyWithKeywordAndAmount() {
+        RuleBasedClassifier rules = new RuleBasedClassifier();
+
+        Classification debit = rules.classify(TEXTS.get(0));
+        assertEquals(TransactionType.DEBIT, debit.getType());
+        assertEquals(RuleBasedClassifier.CONFIDENT, debit.getConfidence(), 0f);
+
+        // Both kinds of keyword: leave it to the model
+        assertEquals(RuleBasedClassifier.CONFLICTING, rules.classify(TEXTS.get(5)).getConfidence(), 0f);
+        // Keyword without an amount
+        assertEquals(RuleBasedClassifier.KEYWORD_ONLY, rules.classify(TEXTS.get(6)).getConfidence(), 0f);
+        // Amount without a keyword
+        assertEquals(RuleBasedClassifier.AMOUNT_ONLY, rules.classify(TEXTS.get(7)).getConfidence(), 0f);
+    }
+
+    @Test
+    public void cascade_callsModelOnlyWhenRulesAreUnsure() throws Exception {
+        FakeModel model = new FakeModel();
+        CascadeClassifier cascade = new CascadeClassifier(new RuleBasedClassifier(), model,
+                CascadeClassifier.DEFAULT_TRUST_THRESHOLD);
+
+        ClassifierEvaluation.Report report = ClassifierEvaluation.evaluate(cascade,
+                SmsClassifier.DEFAULT_CONFIDENCE_THRESHOLD, TEXTS, LABELS);
+
+        assertEquals(1.0, report.accuracy(), 0.0);
+        assertEquals(5, model.calls);
+        assertEquals(5, cascade.getDecidedFirstCount());
+        assertEquals(5, cascade.getDeferredCount());
+    }
+
+    @Test
+    public void rules_hedgedKeywordsAreNotTrusted() throws Exception {
+        String[] hedged = {
+                "Rs 500 will be debited on 5th for EMI",
+                "Your card was not debited. Rs 500 payment failed",
+                "Request to pay Rs 500 from MERCHANT. Ignore if already paid",
+        };
+        RuleBasedClassifier rules = new RuleBasedClassifier();
+        FakeModel model = new FakeModel();
+        CascadeClassifier cascade = new CascadeClassifier(rules, model, CascadeClassifier.DEFAULT_TRUST_THRESHOLD);
+
+        for (String sms : hedged) {
+            assertEquals(sms, RuleBasedClassifier.HEDGED, rules.classify(sms).getConfidence(), 0f);
+            assertNull(sms, cascade.classifyFirst(sms));
+        }
+        assertEquals(hedged.length, cascade.getDeferredCount());
+    }
+
+    @Test
+    public void cascade_defersMessagesWithoutRuleKeywordsToModel() throws Exception {
+        String salary = "salary transferred to your account";
+        FakeModel model = new FakeModel();
+        model.truth.put(salary, TransactionType.CREDIT);
+        CascadeClassifier cascade = new CascadeClassifier(new RuleBasedClassifier(), model,
+                CascadeClassifier.DEFAULT_TRUST_THRESHOLD);
+
+        assertNull(cascade.classifyFirst(salary));
+        assertEquals(TransactionType.CREDIT, cascade.classify(salary).getType());
+        assertEquals(1, model.calls);
+    }
+
+    @Test
+    public void evaluate_countsLowConfidenceAsUnknown() throws Exception {
+        ClassifierEvaluation.Report report = ClassifierEvaluation.evaluate(new FakeModel(), 0.9f, TEXTS, LABELS);
+
+        assertEquals(TEXTS.size(), report.unknown);
+        assertEquals(0.0, report.accuracy(), 0.0);
+    }
+
+    @Test
+    public void calibrate_picksLowestThresholdMeetingPrecision() throws Exception {
+        RuleBasedClassifier rules = new RuleBasedClassifier();
+
+        // The only wrong rule decision is the refund notice, at KEYWORD_ONLY confidence
+        float threshold = ClassifierEvaluation.calibrate(rules, TEXTS, LABELS, 1.0);
+        ClassifierEvaluation.Report report = ClassifierEvaluation.evaluate(rules, threshold, TEXTS, LABELS);
+
+        assertEquals(1.0, report.precision(), 0.0);
+        assertTrue("threshold " + threshold, threshold > RuleBasedClassifier.KEYWORD_ONLY);
+    }
+}
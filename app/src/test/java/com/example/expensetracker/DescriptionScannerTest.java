@@ -0,0 +1,64 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DescriptionScanner}.
+ */
+public class DescriptionScannerTest {
+    private static final String SMS =
+            "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI. Avl bal Rs.10,234.50";
+
+    @Test
+    public void findSpan_returnsOffsetsIntoOriginalText() {
+        long span = DescriptionScanner.findSpan(SMS);
+
+        assertEquals(SMS.indexOf("AMAZON"), DescriptionScanner.spanStart(span));
+        assertEquals(SMS.indexOf(" via"), DescriptionScanner.spanEnd(span));
+        assertEquals("AMAZON PAY", DescriptionScanner.extract(SMS));
+    }
+
+    @Test
+    public void extract_prefersPayeeMarkers() {
+        assertEquals("STARBUCKS COFFEE", DescriptionScanner.extract("INR 500 spent at STARBUCKS COFFEE on 01-02-24"));
+        assertEquals("swiggy-99@icici", DescriptionScanner.extract("Paid Rs 150 via VPA swiggy-99@icici. Ref 4411"));
+        assertEquals("Netflix", DescriptionScanner.extract("Rs 99 debited for Netflix via UPI"));
+    }
+
+    @Test
+    public void extract_skipsOwnAccountAfterMarker() {
+        assertEquals("JOHN DOE",
+                DescriptionScanner.extract("Rs 200 credited to your A/c XX12 from JOHN DOE. Ref 123"));
+    }
+
+    @Test
+    public void extract_stopWordAfterOpeningPunctuationEndsPayee() {
+        assertEquals("ACME CORP PVT LTD",
+                DescriptionScanner.extract("INR 5,000 credited to your A/c XX12 from ACME CORP PVT LTD (Ref 1234)"));
+    }
+
+    @Test
+    public void extract_titleDotDoesNotEndPayee() {
+        assertEquals("Mr. Sharma", DescriptionScanner.extract("Paid Rs 200 to Mr. Sharma"));
+        assertEquals("Dr. Rao", DescriptionScanner.extract("Rs 500 debited to Dr. Rao. Ref 99"));
+    }
+
+    @Test
+    public void extract_capsLength() {
+        String longName = "to VERY LONG MERCHANT NAME THAT KEEPS GOING AND GOING WELL PAST FIFTY CHARACTERS";
+
+        String description = DescriptionScanner.extract(longName);
+        assertTrue(description, description.length() <= DescriptionScanner.MAX_LENGTH);
+        assertTrue(description, description.startsWith("VERY LONG MERCHANT"));
+    }
+
+    @Test
+    public void extract_nullWithoutPayee() {
+        assertNull(DescriptionScanner.extract("Your OTP is 123456"));
+        assertNull(DescriptionScanner.extract("Rs 500 debited from A/c XX1234"));
+        assertNull(DescriptionScanner.extract(""));
+        assertNull(DescriptionScanner.extract(null));
+    }
+}
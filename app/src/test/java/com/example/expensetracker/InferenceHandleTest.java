@@ -0,0 +1,71 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link InferenceHandle}.
+ */
+public class InferenceHandleTest {
+
+    @Test
+    public void cancel_beforeDelivery_suppressesCallback() {
+        InferenceHandle handle = new InferenceHandle(InferenceHandle.NO_TIMEOUT);
+
+        assertTrue(handle.cancel());
+
+        assertTrue(handle.isStale());
+        assertTrue(handle.isCancelled());
+        assertFalse(handle.finish());
+    }
+
+    @Test
+    public void cancel_afterDelivery_hasNoEffect() {
+        InferenceHandle handle = new InferenceHandle(InferenceHandle.NO_TIMEOUT);
+
+        assertTrue(handle.finish());
+
+        assertFalse(handle.cancel());
+        assertFalse(handle.isCancelled());
+        assertTrue(handle.isDone());
+    }
+
+    @Test
+    public void deadline_expiresRequest() throws InterruptedException {
+        InferenceHandle handle = new InferenceHandle(1);
+
+        Thread.sleep(5);
+
+        assertTrue(handle.isStale());
+        assertTrue(handle.isCancelled());
+        assertFalse(handle.finish());
+    }
+
+    @Test
+    public void noTimeout_neverExpires() {
+        InferenceHandle handle = new InferenceHandle(InferenceHandle.NO_TIMEOUT);
+
+        assertFalse(handle.isStale());
+        assertTrue(handle.finish());
+    }
+
+    @Test
+    public void onCancel_runsHookOnceCancelled() {
+        AtomicInteger runs = new AtomicInteger();
+        InferenceHandle handle = new InferenceHandle(InferenceHandle.NO_TIMEOUT);
+        handle.onCancel(runs::incrementAndGet);
+
+        assertEquals(0, runs.get());
+        handle.cancel();
+        assertEquals(1, runs.get());
+
+        // Registered after cancellation: runs right away
+        InferenceHandle cancelled = new InferenceHandle(InferenceHandle.NO_TIMEOUT);
+        cancelled.cancel();
+        cancelled.onCancel(runs::incrementAndGet);
+        assertEquals(2, runs.get());
+    }
+}
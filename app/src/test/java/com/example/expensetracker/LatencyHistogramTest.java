@@ -0,0 +1,82 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketIndex_isContiguousAndBoundsMatch() {
+        assertEquals(0, LatencyHistogram.bucketIndex(0));
+        assertEquals(7, LatencyHistogram.bucketIndex(7));
+        assertEquals(8, LatencyHistogram.bucketIndex(8));
+        assertEquals(16, LatencyHistogram.bucketIndex(16));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            long lower = LatencyHistogram.bucketLowerBound(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(lower));
+            if (lower > 0) {
+                assertEquals(i - 1, LatencyHistogram.bucketIndex(lower - 1));
+            }
+        }
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMax());
+        assertEquals(500_500.0, snapshot.getMean(), 0.001);
+        assertWithinPrecision(500_000, snapshot.getPercentile(50));
+        assertWithinPrecision(990_000, snapshot.getPercentile(99));
+        assertEquals(1_000_000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void record_concurrentWritersLoseNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.snapshot().getCount());
+        assertEquals(99_999, histogram.snapshot().getMax());
+    }
+
+    @Test
+    public void reset_clearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+
+        histogram.reset();
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getPercentile(50));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("expected ~" + expected + " got " + actual,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
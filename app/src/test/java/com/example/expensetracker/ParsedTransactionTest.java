@@ -0,0 +1,62 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ParsedTransaction}.
+ */
+public class ParsedTransactionTest {
+
+    @Test
+    public void toJson_transaction() {
+        ParsedTransaction result = new ParsedTransaction(TransactionType.DEBIT, 125000, Money.INR, "AMAZON \"PAY\"");
+
+        assertEquals("{\"type\":\"debit\",\"amount\":1250.00,\"description\":\"AMAZON \\\"PAY\\\"\"}",
+                result.toJson());
+    }
+
+    @Test
+    public void toJson_nonTransactionIsAllNulls() {
+        String allNulls = "{\"type\":null,\"amount\":null,\"description\":null}";
+
+        assertEquals(allNulls, ParsedTransaction.NONE.toJson());
+        assertEquals(allNulls, ParsedTransaction.UNKNOWN.toJson());
+    }
+
+    @Test
+    public void hasAmount_falseWithoutAmount() {
+        ParsedTransaction result = new ParsedTransaction(TransactionType.CREDIT, ParsedTransaction.NO_AMOUNT, Money.INR, null);
+
+        assertFalse(result.hasAmount());
+        assertNull(result.getAmount());
+        assertNull(result.getCurrency());
+        assertTrue(result.isTransaction());
+    }
+
+    @Test
+    public void total_sumsExactlyByType() {
+        List<ParsedTransaction> results = Arrays.asList(
+                new ParsedTransaction(TransactionType.DEBIT, 10, Money.INR, null),
+                new ParsedTransaction(TransactionType.DEBIT, 20, Money.INR, null),
+                new ParsedTransaction(TransactionType.CREDIT, 5000, Money.INR, null),
+                new ParsedTransaction(TransactionType.DEBIT, ParsedTransaction.NO_AMOUNT, Money.INR, null),
+                ParsedTransaction.NONE);
+
+        // 0.10 + 0.20 is exactly 0.30, unlike with doubles
+        assertEquals(Money.ofMinor(30, Money.INR), ParsedTransaction.total(results, TransactionType.DEBIT, Money.INR));
+        assertEquals("50.00", ParsedTransaction.total(results, TransactionType.CREDIT, Money.INR).toPlainString());
+    }
+
+    @Test
+    public void money_plainStringIsExact() {
+        assertEquals("0.05", Money.ofMinor(5, Money.INR).toPlainString());
+        assertEquals("-0.50", Money.ofMinor(-50, Money.INR).toPlainString());
+        assertEquals("100000.50", Money.ofMinor(10000050, Money.INR).toPlainString());
+        assertEquals("INR 12.30", Money.ofMinor(1230, Money.INR).toString());
+    }
+}
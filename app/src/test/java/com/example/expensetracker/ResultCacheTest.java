@@ -0,0 +1,71 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ResultCache}.
+ */
+public class ResultCacheTest {
+
+    @Test
+    public void get_matchesNormalizedText() {
+        ResultCache<String> cache = new ResultCache<>(8, 0);
+        cache.put("Rs.500 debited  from A/c XX1234", "debit");
+
+        assertEquals("debit", cache.get("  rs.500 DEBITED from a/c xx1234\n"));
+        assertNull(cache.get("Rs.501 debited from A/c XX1234"));
+
+        ResultCache.Stats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        ResultCache<String> cache = new ResultCache<>(2, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.stats().getEvictions());
+    }
+
+    @Test
+    public void get_expiresAfterTtl() throws InterruptedException {
+        ResultCache<String> cache = new ResultCache<>(8, 1);
+        cache.put("a", "1");
+        Thread.sleep(5);
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.stats().getExpirations());
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    public void setModelVersion_clearsOnChange() {
+        ResultCache<String> cache = new ResultCache<>(8, 0);
+        cache.setModelVersion("v1");
+        cache.put("a", "1");
+        cache.setModelVersion("v1");
+        assertEquals("1", cache.get("a"));
+
+        cache.setModelVersion("v2");
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.stats().getInvalidations());
+    }
+
+    @Test
+    public void zeroSize_disablesCache() {
+        ResultCache<String> cache = new ResultCache<>(0, 0);
+        cache.put("a", "1");
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.stats().getSize());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SmsFeaturizer}.
+ */
+public class SmsFeaturizerTest {
+    private static final int SIZE = 128;
+    private static final String SMS =
+            "  ₹1,250.00 debited from A/c XX1234 to “AMAZON PAY” via UPI 😀. Avl bal Rs.10,234.50  ";
+
+    @Test
+    public void encode_trimsLowercasesAndPads() {
+        FloatBuffer dst = FloatBuffer.allocate(SIZE);
+        SmsFeaturizer.encode(" AB ", dst, SIZE);
+
+        assertEquals(SIZE, dst.position());
+        assertEquals('a' / 128.0f, dst.get(0), 0f);
+        assertEquals('b' / 128.0f, dst.get(1), 0f);
+        for (int i = 2; i < SIZE; i++) {
+            assertEquals(0.0f, dst.get(i), 0f);
+        }
+    }
+
+    @Test
+    public void encode_truncatesToTargetSize() {
+        FloatBuffer dst = FloatBuffer.allocate(4);
+        SmsFeaturizer.encode("abcdef", dst, 4);
+
+        assertEquals(4, dst.position());
+        assertEquals('d' / 128.0f, dst.get(3), 0f);
+    }
+
+    @Test
+    public void encodedLength_ignoresSurroundingWhitespace() {
+        assertEquals(2, SmsFeaturizer.encodedLength(" AB \n"));
+        assertEquals(0, SmsFeaturizer.encodedLength("   "));
+        assertEquals(0, SmsFeaturizer.encodedLength(null));
+    }
+
+    @Test
+    public void encode_keepsNonAsciiWithinUnitRange() {
+        String text = "₹500 to राम 😀 ÉTÉ “ok” – x";
+        FloatBuffer dst = FloatBuffer.allocate(SIZE);
+        SmsFeaturizer.encode(text, dst, SIZE);
+
+        for (int i = 0; i < SIZE; i++) {
+            assertTrue("feature " + i + " = " + dst.get(i), dst.get(i) >= 0f && dst.get(i) < 1f);
+        }
+        assertEquals('$' / 128.0f, dst.get(0), 0f);
+        assertEquals(SmsFeaturizer.OTHER, dst.get(8), 0f);
+    }
+
+    @Test
+    public void encode_foldsAccentsQuotesAndSpaces() {
+        assertEncodesLike("ete \"ok\" - x", "ÉTÉ\u00A0“ok” – x");
+    }
+
+    @Test
+    public void encode_keepsTrainedValuesForAsciiControls() {
+        FloatBuffer dst = FloatBuffer.allocate(5);
+        SmsFeaturizer.encode("a\tb\nc", dst, 5);
+
+        assertEquals('\t' / 128.0f, dst.get(1), 0f);
+        assertEquals('\n' / 128.0f, dst.get(3), 0f);
+        for (char c = 0; c < 128; c++) {
+            dst.clear();
+            SmsFeaturizer.encode("x" + c + "x", dst, 3);
+            assertEquals("char " + (int) c, Character.toLowerCase(c) / 128.0f, dst.get(1), 0f);
+        }
+    }
+
+    @Test
+    public void encode_surrogatePairIsOneFeature() {
+        String emoji = "a\uD83D\uDE00b";
+        FloatBuffer dst = FloatBuffer.allocate(4);
+        SmsFeaturizer.encode(emoji, dst, 4);
+
+        assertEquals(3, SmsFeaturizer.encodedLength(emoji));
+        assertEquals(SmsFeaturizer.OTHER, dst.get(1), 0f);
+        assertEquals('b' / 128.0f, dst.get(2), 0f);
+        // A lone surrogate is still one deterministic feature
+        assertEquals(1, SmsFeaturizer.encodedLength("\uD83D"));
+    }
+
+    private static void assertEncodesLike(String expected, String actual) {
+        FloatBuffer a = FloatBuffer.allocate(SIZE);
+        FloatBuffer b = FloatBuffer.allocate(SIZE);
+        SmsFeaturizer.encode(expected, a, SIZE);
+        SmsFeaturizer.encode(actual, b, SIZE);
+        a.flip();
+        b.flip();
+        assertEquals(actual, a, b);
+    }
+
+    @Test
+    public void encode_allocatesNothingInSteadyState() throws Exception {
+        FloatBuffer dst = ByteBuffer.allocateDirect(SIZE * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        for (int i = 0; i < 20_000; i++) {
+            dst.clear();
+            SmsFeaturizer.encode(SMS, dst, SIZE);
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < 10_000; i++) {
+            dst.clear();
+            SmsFeaturizer.encode(SMS, dst, SIZE);
+        }
+        long allocated = allocatedBytes() - before;
+
+        // Only the measurement itself may allocate; 10k encodes must not. This covers the
+        // featurizer alone, not the rest of the request path (see InferenceBuffers).
+        assertTrue("allocated " + allocated + " bytes", allocated < 4096);
+    }
+
+    /**
+     * Bytes allocated by the current thread, via the host JVM's com.sun.management.ThreadMXBean.
+     */
+    private static long allocatedBytes() throws Exception {
+        Object bean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean")
+                .invoke(null);
+        Method method = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+        return (Long) method.invoke(bean, Thread.currentThread().getId());
+    }
+}
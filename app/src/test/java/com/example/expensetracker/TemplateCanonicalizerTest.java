@@ -0,0 +1,74 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TemplateCanonicalizer}.
+ */
+public class TemplateCanonicalizerTest {
+
+    /** Messages from a handful of bank templates, with varying amounts, dates, accounts and payees. */
+    static final String[] CORPUS = {
+            "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI. Avl bal Rs.10,234.50",
+            "Rs.89.00 debited from A/c XX1234 on 13-03-24 to SWIGGY via UPI. Avl bal Rs.10,145.50",
+            "Rs.2,000.00 debited from A/c XX9876 on 14-03-24 to RAHUL KUMAR via UPI. Avl bal Rs.8,145.50",
+            "Rs.450.00 debited from A/c XX1234 on 15-03-24 to ZOMATO LTD via UPI. Avl bal Rs.7,695.50",
+            "INR 15,000.00 credited to A/c XX1234 on 01-04-24 by NEFT from ACME CORP. Ref 998877",
+            "INR 15,500.00 credited to A/c XX1234 on 01-05-24 by NEFT from ACME CORP. Ref 112233",
+            "INR 2,300.00 credited to A/c XX4321 on 03-05-24 by NEFT from JOHN DOE. Ref 445566",
+            "You have spent Rs 349.00 on your HDFC Bank Credit Card ending 4455 at NETFLIX on 2024-03-10",
+            "You have spent Rs 1,999.00 on your HDFC Bank Credit Card ending 4455 at FLIPKART on 2024-03-12",
+            "You have spent Rs 120.50 on your HDFC Bank Credit Card ending 7788 at UBER INDIA on 2024-03-15",
+            "Sent Rs.500.00 from Kotak Bank AC X5566 to friend@okaxis on 10-03-24. UPI Ref 123456789012",
+            "Sent Rs.75.00 from Kotak Bank AC X5566 to chai.wala@ybl on 11-03-24. UPI Ref 223456789012",
+            "Sent Rs.1,200.00 from Kotak Bank AC X5566 to landlord@icici on 01-04-24. UPI Ref 323456789012",
+            "Your OTP for login is 482913. Do not share it with anyone.",
+            "Your OTP for login is 104857. Do not share it with anyone.",
+            "Get 50% off on your next order! Use code SAVE50. T&C apply.",
+    };
+
+    @Test
+    public void skeleton_masksVariableFields() {
+        assertEquals("# debited from @ on # to @ via upi. avl bal #",
+                TemplateCanonicalizer.skeleton(CORPUS[0]));
+    }
+
+    @Test
+    public void skeleton_masksTitledPayeeAndStopsAtBracketedRef() {
+        assertEquals("paid rs # to @ on #", TemplateCanonicalizer.skeleton("Paid Rs 200 to Mr. Sharma on 12-03-24"));
+        assertEquals("inr # credited from @ (ref #",
+                TemplateCanonicalizer.skeleton("INR 5,000 credited from ACME CORP PVT LTD (Ref 1234)"));
+    }
+
+    @Test
+    public void skeleton_sameTemplateSameSkeleton() {
+        assertEquals(TemplateCanonicalizer.skeleton(CORPUS[0]), TemplateCanonicalizer.skeleton(CORPUS[2]));
+        assertEquals(TemplateCanonicalizer.skeleton(CORPUS[7]), TemplateCanonicalizer.skeleton(CORPUS[9]));
+        assertEquals(TemplateCanonicalizer.skeleton(CORPUS[10]), TemplateCanonicalizer.skeleton(CORPUS[11]));
+    }
+
+    @Test
+    public void skeleton_differentTemplatesDiffer() {
+        assertNotEquals(TemplateCanonicalizer.skeleton(CORPUS[0]), TemplateCanonicalizer.skeleton(CORPUS[4]));
+        assertNotEquals(TemplateCanonicalizer.skeleton(CORPUS[4]), TemplateCanonicalizer.skeleton(CORPUS[7]));
+    }
+
+    @Test
+    public void corpus_fractionServedFromTemplateCache() {
+        Set<String> seen = new HashSet<>();
+        int served = 0;
+        for (String sms : CORPUS) {
+            if (!seen.add(TemplateCanonicalizer.skeleton(sms))) {
+                served++;
+            }
+        }
+        // 16 messages, 6 templates: everything after the first message of each template is served
+        assertEquals(6, seen.size());
+        assertEquals(10, served);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TransactionPrefilter}.
+ */
+public class TransactionPrefilterTest {
+    private static final String[] TRANSACTIONS = {
+            "Rs.1,250.00 debited from A/c XX1234 on 12-03-24 to AMAZON PAY via UPI. Avl bal Rs.10,234.50",
+            "INR 500.00 spent on HDFC Bank Card XX9876 at STARBUCKS on 2024-03-12. Not you? Never share OTP",
+            "Your A/c XX5678 is credited with Rs 25,000.00 by NEFT from ACME CORP. Ref 88221",
+            "₹99 paid to Swiggy from your account",
+            "Rs 2000 withdrawn at ATM SBI MG ROAD from A/c XX4321",
+            "Sent Rs.150.00 From HDFC Bank A/C *1234 To zomato@hdfcbank On 12/03/24 Ref 407112345678",
+            "Received INR 3,000 in your a/c XX1111 from RAHUL via IMPS",
+            "Txn of INR 1,999 on card XX0001 at FLIPKART successful",
+            "RS. 700 DEBITED FROM A/C XX2222 FOR BILLPAY",
+            "Money transfer of Rs 10,000 via RTGS to A/c XX3333 successful",
+    };
+
+    private static final String[] NON_TRANSACTIONS = {
+            "123456 is your OTP for login. Valid for 10 minutes. Do not share it with anyone.",
+            "Use OTP 4321 to complete your txn of Rs 500 at AMAZON. Do not share.",
+            "Mega SALE! Flat 50% discount on shoes. Shop now at example.com",
+            "Congrats! You are pre-approved for a loan of Rs 5,00,000. Apply now",
+            "Hey, are we still on for dinner tonight?",
+            "Your order #4411 has been shipped and will arrive tomorrow",
+            "Your verification code is 889911",
+            "Recharge now with Rs 299 and get 2GB/day extra. Offer valid till Sunday",
+            "Happy birthday! Have a great year ahead",
+            "Meeting moved to 4 pm, see you there",
+            "Your parcel is out for delivery. Track at example.com/track",
+            "Win a free trip! Reply YES to enter",
+    };
+
+    private final TransactionPrefilter prefilter = TransactionPrefilter.createDefault();
+
+    @Test
+    public void keepsEveryTransaction() {
+        for (String sms : TRANSACTIONS) {
+            assertTrue(sms, prefilter.mightBeTransaction(sms));
+        }
+    }
+
+    @Test
+    public void rejectsOtpsPromosAndChats() {
+        for (String sms : NON_TRANSACTIONS) {
+            assertFalse(sms, prefilter.mightBeTransaction(sms));
+        }
+        assertFalse(prefilter.mightBeTransaction(""));
+        assertFalse(prefilter.mightBeTransaction(null));
+    }
+
+    @Test
+    public void matchesWholeWordsOnly() {
+        // "rs" inside "yours"/"users", "upi" inside "cupid", "sale" inside "wholesale"
+        assertFalse(prefilter.mightBeTransaction("Yours truly, from all our users"));
+        assertFalse(prefilter.mightBeTransaction("Cupid says hi"));
+        assertTrue(prefilter.mightBeTransaction("Wholesale payment of Rs 400 received"));
+    }
+
+    @Test
+    public void paymentWithAmountOutweighsPromoWords() {
+        assertTrue(prefilter.mightBeTransaction("INR 300 received. Use code WIN for offer"));
+        assertTrue(prefilter.mightBeTransaction("Paid Rs 450 at CAFE COFFEE DAY. Next visit get 10% discount"));
+        // Promo words still win without a payment word or without an amount
+        assertFalse(prefilter.mightBeTransaction("Get Rs 100 off on your next order. Use code WIN for offer"));
+        assertFalse(prefilter.mightBeTransaction("Your reward has been received. Claim the offer today"));
+    }
+
+    @Test
+    public void skipsEveryNonTransactionInMixedInbox() {
+        String[] inbox = new String[TRANSACTIONS.length + NON_TRANSACTIONS.length];
+        System.arraycopy(TRANSACTIONS, 0, inbox, 0, TRANSACTIONS.length);
+        System.arraycopy(NON_TRANSACTIONS, 0, inbox, TRANSACTIONS.length, NON_TRANSACTIONS.length);
+
+        int rejected = 0;
+        for (String sms : inbox) {
+            if (!prefilter.mightBeTransaction(sms)) {
+                rejected++;
+            }
+        }
+
+        // Every non-transaction in the mixed inbox skips the model
+        assertEquals(NON_TRANSACTIONS.length, rejected);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link WordPieceTokenizer}.
+ */
+public class WordPieceTokenizerTest {
+    private static final List<String> VOCAB = Arrays.asList(
+            "[PAD]", "[UNK]", "[CLS]", "[SEP]", // 0-3
+            "rs", ".", ",", "debit", "##ed", "from", // 4-9
+            "a", "/", "c", "to", "amazon", "pay", // 10-15
+            "via", "upi", "1", "##2", "##5", "##0", "xx", "##1", "##3", "##4"); // 16-25
+    private static final String SMS = "Rs.1,250 debited from A/c XX1234 to AMAZON PAY via UPI";
+
+    private final WordPieceTokenizer tokenizer = new WordPieceTokenizer(VOCAB);
+
+    @Test
+    public void encode_splitsIntoLongestPiecesWithMask() {
+        LongBuffer ids = LongBuffer.allocate(8);
+        LongBuffer mask = LongBuffer.allocate(8);
+
+        int count = tokenizer.encode("Debited via UPI", ids, mask, 8);
+
+        assertEquals(6, count);
+        assertArrayEquals(new long[]{2, 7, 8, 16, 17, 3, 0, 0}, ids.array());
+        assertArrayEquals(new long[]{1, 1, 1, 1, 1, 1, 0, 0}, mask.array());
+        assertEquals(8, ids.position());
+        assertEquals(8, mask.position());
+    }
+
+    @Test
+    public void encode_unknownWordBecomesSingleUnk() {
+        LongBuffer ids = LongBuffer.allocate(6);
+        LongBuffer mask = LongBuffer.allocate(6);
+
+        // "debitx" matches "debit" but "##x" is not in the vocab
+        tokenizer.encode("debitx to", ids, mask, 6);
+
+        assertArrayEquals(new long[]{2, 1, 13, 3, 0, 0}, ids.array());
+    }
+
+    @Test
+    public void encode_truncatesButKeepsSep() {
+        LongBuffer ids = LongBuffer.allocate(4);
+        LongBuffer mask = LongBuffer.allocate(4);
+
+        int count = tokenizer.encode(SMS, ids, mask, 4);
+
+        assertEquals(4, count);
+        assertArrayEquals(new long[]{2, 4, 5, 3}, ids.array());
+    }
+}